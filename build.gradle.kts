@@ -6,6 +6,7 @@ plugins {
     //checkstyle
     jacoco
     id("com.github.spotbugs") version "6.0.9"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "de.siegmar"
@@ -27,6 +28,31 @@ repositories {
     mavenCentral()
 }
 
+// Optional Vector API (SIMD) implementations - only loaded at runtime if jdk.incubator.vector is present
+val vector: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+}
+
+tasks.named<JavaCompile>(vector.compileJavaTaskName) {
+    // incubator modules are not available with --release
+    options.release.set(null as Int?)
+    sourceCompatibility = "17"
+    targetCompatibility = "17"
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+
+tasks.jar {
+    from(vector.output)
+}
+
+tasks.named<Jar>("sourcesJar") {
+    from(vector.allSource)
+}
+
+sourceSets.test {
+    runtimeClasspath += vector.output
+}
+
 dependencies {
     api("ch.qos.logback:logback-classic:1.2.+!!")
     testImplementation("org.slf4j:slf4j-api:1.7.+!!")
@@ -42,6 +68,7 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
+    jvmArgs("--add-modules", "jdk.incubator.vector")
     finalizedBy(tasks.jacocoTestReport)
 }
 
@@ -57,6 +84,23 @@ tasks.withType<com.github.spotbugs.snom.SpotBugsTask>().configureEach {
     reports.maybeCreate("html").required = true
 }
 
+jmh {
+    jmhVersion = "1.37"
+}
+
+sourceSets.named("jmh") {
+    runtimeClasspath += vector.output
+}
+
+// Benchmarks are not part of the library - skip static analysis for them
+tasks.named("pmdJmh") {
+    enabled = false
+}
+
+tasks.named("spotbugsJmh") {
+    enabled = false
+}
+
 tasks.jacocoTestReport {
     reports {
         xml.required.set(true)
@@ -0,0 +1,85 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.ContextAwareBase;
+
+/**
+ * Measures the latency distribution (see the p99 percentile) of handing an encoded message over to
+ * the asynchronous sender - with multiple concurrently logging threads.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class AsyncSenderBenchmark {
+
+    @Param({"SPIN", "YIELD", "PARK"})
+    private WaitStrategy waitStrategy;
+
+    private AsyncSender asyncSender;
+    private byte[] message;
+
+    @Setup
+    public void setup() {
+        final ContextAwareBase status = new ContextAwareBase();
+        status.setContext(new LoggerContext());
+
+        asyncSender = new AsyncSender("benchmark-sender", 8192, 2048, waitStrategy,
+            new OverflowHandler(OverflowPolicy.DROP_NEWEST, 0, Level.WARN), (msg, offset, length) -> { }, status);
+        asyncSender.start();
+
+        message = "{\"version\":\"1.1\",\"host\":\"localhost\",\"short_message\":\"Order 42 placed\"}"
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        asyncSender.stop(System.nanoTime() + TimeUnit.SECONDS.toNanos(1), 1);
+    }
+
+    @Benchmark
+    public boolean enqueue() {
+        return asyncSender.enqueue(message, 0, message.length);
+    }
+
+}
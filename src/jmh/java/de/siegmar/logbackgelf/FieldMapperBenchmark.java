@@ -0,0 +1,89 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+/**
+ * Measures the per event cost of the field mappers - built-in mappers only and with additional
+ * custom mappers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FieldMapperBenchmark {
+
+    @Param({"0", "4", "16"})
+    private int customMappers;
+
+    private GelfEncoder encoder;
+    private LoggingEvent event;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setup() {
+        final LoggerContext context = new LoggerContext();
+
+        encoder = new GelfEncoder();
+        encoder.setContext(context);
+        encoder.setOriginHost("localhost");
+        encoder.setIncludeLevelName(true);
+        for (int i = 0; i < customMappers; i++) {
+            final String fieldName = "custom_" + i;
+            encoder.addFieldMapper((e, valueHandler) -> valueHandler.accept(fieldName, e.getLoggerName()));
+        }
+        encoder.start();
+
+        event = new LoggingEvent(FieldMapperBenchmark.class.getName(),
+            context.getLogger(FieldMapperBenchmark.class), Level.INFO, "Order {} placed", null,
+            new Object[]{42});
+        event.setMDCPropertyMap(Map.of("request_id", "4711", "user", "jdoe"));
+
+        buffer = ByteBuffer.allocate(8192);
+    }
+
+    @Benchmark
+    public int encode() {
+        buffer.clear();
+        return encoder.encodeInto(event, buffer);
+    }
+
+}
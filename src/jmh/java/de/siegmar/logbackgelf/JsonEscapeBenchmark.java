@@ -0,0 +1,85 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package de.siegmar.logbackgelf;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares scalar and vectorized escaping of large values (like {@code full_message}) by
+ * {@link Utf8JsonEncoder}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class JsonEscapeBenchmark {
+
+    private static final String STACK_TRACE_LINE =
+        "\tat com.example.service.OrderService.placeOrder(OrderService.java:123)\n";
+    private static final String PAYLOAD =
+        "{'id':12345,'name':'lorem ipsum dolor sit amet','tags':['consectetur','adipiscing']} ";
+
+    @Param({"1024", "16384", "131072"})
+    private int size;
+
+    @Param({"stackTrace", "payload"})
+    private String input;
+
+    private String value;
+    private ByteArrayBuffer buf;
+
+    @Setup
+    public void setup() {
+        if (EscapeScanners.VECTORIZED == null) {
+            throw new IllegalStateException("Vector API not available");
+        }
+        final String pattern = "stackTrace".equals(input) ? STACK_TRACE_LINE : PAYLOAD;
+        value = pattern.repeat(size / pattern.length() + 1).substring(0, size);
+        buf = new ByteArrayBuffer(size * 2);
+    }
+
+    @Benchmark
+    public ByteArrayBuffer scalar() {
+        buf.reset();
+        Utf8JsonEncoder.escape(buf, value, null);
+        return buf;
+    }
+
+    @Benchmark
+    public ByteArrayBuffer vectorized() {
+        buf.reset();
+        Utf8JsonEncoder.escape(buf, value, EscapeScanners.VECTORIZED);
+        return buf;
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares number detection of field values via {@link NumberScanner} with the previous
+ * approach of parsing every value with {@link BigDecimal} and catching the exception.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NumberDetectionBenchmark {
+
+    @Param({
+        "550e8400-e29b-41d4-a716-446655440000", // UUID
+        "4bf92f3577b34da6a3ce929d0e0e4736",     // trace id
+        "00f067aa0ba902b7",                     // span id
+        "user-4711",                            // user id
+        "4711",                                 // numeric user id
+        "12.5",                                 // decimal
+        "http-nio-8080-exec-1",                 // thread name
+    })
+    private String value;
+
+    @Benchmark
+    public Object bigDecimal() {
+        try {
+            return new BigDecimal(value);
+        } catch (final NumberFormatException e) {
+            return value;
+        }
+    }
+
+    @Benchmark
+    public Object numberScanner() {
+        // canonical numbers are written verbatim - only non-canonical ones require parsing
+        if (NumberScanner.scan(value) != NumberScanner.Result.NON_CANONICAL) {
+            return value;
+        }
+        return bigDecimal();
+    }
+
+}
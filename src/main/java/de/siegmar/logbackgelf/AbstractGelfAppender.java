@@ -20,13 +20,20 @@
 package de.siegmar.logbackgelf;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
+import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.UnsynchronizedAppenderBase;
 
 public abstract class AbstractGelfAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
 
     private static final int DEFAULT_GELF_PORT = 12201;
+    private static final int DEFAULT_ASYNC_QUEUE_SIZE = 1024;
+    private static final int DEFAULT_ASYNC_SLOT_SIZE = 2048;
+    private static final int DEFAULT_ASYNC_BLOCK_TIMEOUT = 100;
+    private static final int DEFAULT_SHUTDOWN_TIMEOUT = 5_000;
 
     /**
      * IP or hostname of graylog server.
@@ -38,8 +45,68 @@ public abstract class AbstractGelfAppender extends UnsynchronizedAppenderBase<IL
      */
     private int graylogPort = DEFAULT_GELF_PORT;
 
+    /**
+     * If true, messages are sent by a dedicated sender thread instead of the logging thread.
+     * Default: false.
+     */
+    private boolean async;
+
+    /**
+     * Maximum number of messages queued for the sender thread (rounded up to the next power of two).
+     * Default: {@value DEFAULT_ASYNC_QUEUE_SIZE}.
+     */
+    private int asyncQueueSize = DEFAULT_ASYNC_QUEUE_SIZE;
+
+    /**
+     * Size (in bytes) of the pre-allocated queue slots - larger messages are queued in temporarily
+     * allocated arrays. Default: {@value DEFAULT_ASYNC_SLOT_SIZE} bytes.
+     */
+    private int asyncSlotSize = DEFAULT_ASYNC_SLOT_SIZE;
+
+    /**
+     * Strategy of the sender thread for waiting on new messages. Default: PARK.
+     */
+    private WaitStrategy asyncWaitStrategy = WaitStrategy.PARK;
+
+    /**
+     * Policy for handling messages while the queue is full. Default: DROP_NEWEST.
+     */
+    private OverflowPolicy asyncOverflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+    /**
+     * Maximum time (in milliseconds) to block the logging thread with overflow policy BLOCK.
+     * Default: {@value DEFAULT_ASYNC_BLOCK_TIMEOUT} milliseconds.
+     */
+    private int asyncBlockTimeout = DEFAULT_ASYNC_BLOCK_TIMEOUT;
+
+    /**
+     * Messages below this level are dropped first with overflow policy DROP_BELOW_LEVEL.
+     * Default: WARN.
+     */
+    private Level asyncDropLevel = Level.WARN;
+
+    /**
+     * Maximum time (in milliseconds) to flush queued messages (and retry failed ones) on stop.
+     * Default: {@value DEFAULT_SHUTDOWN_TIMEOUT} milliseconds.
+     */
+    private int shutdownTimeout = DEFAULT_SHUTDOWN_TIMEOUT;
+
     private GelfEncoder encoder;
 
+    private AsyncSender asyncSender;
+
+    /**
+     * Time (see {@link System#nanoTime()}) until the appender may send messages after it has been
+     * stopped. Only valid if {@link #stopping} is set.
+     */
+    private volatile long shutdownDeadline;
+
+    private volatile boolean stopping;
+
+    private final EncodedMessageConsumer messageSender = this::appendMessage;
+
+    private final EncodedMessageConsumer messageEnqueuer = this::enqueueMessage;
+
     public String getGraylogHost() {
         return graylogHost;
     }
@@ -56,6 +123,91 @@ public abstract class AbstractGelfAppender extends UnsynchronizedAppenderBase<IL
         this.graylogPort = graylogPort;
     }
 
+    public boolean isAsync() {
+        return async;
+    }
+
+    public void setAsync(final boolean async) {
+        this.async = async;
+    }
+
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    public void setAsyncQueueSize(final int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+    public int getAsyncSlotSize() {
+        return asyncSlotSize;
+    }
+
+    public void setAsyncSlotSize(final int asyncSlotSize) {
+        this.asyncSlotSize = asyncSlotSize;
+    }
+
+    public WaitStrategy getAsyncWaitStrategy() {
+        return asyncWaitStrategy;
+    }
+
+    public void setAsyncWaitStrategy(final WaitStrategy asyncWaitStrategy) {
+        this.asyncWaitStrategy = asyncWaitStrategy;
+    }
+
+    public OverflowPolicy getAsyncOverflowPolicy() {
+        return asyncOverflowPolicy;
+    }
+
+    public void setAsyncOverflowPolicy(final OverflowPolicy asyncOverflowPolicy) {
+        this.asyncOverflowPolicy = asyncOverflowPolicy;
+    }
+
+    public int getAsyncBlockTimeout() {
+        return asyncBlockTimeout;
+    }
+
+    public void setAsyncBlockTimeout(final int asyncBlockTimeout) {
+        this.asyncBlockTimeout = asyncBlockTimeout;
+    }
+
+    public Level getAsyncDropLevel() {
+        return asyncDropLevel;
+    }
+
+    public void setAsyncDropLevel(final Level asyncDropLevel) {
+        this.asyncDropLevel = asyncDropLevel;
+    }
+
+    /**
+     * The number of messages that have been dropped by the given overflow policy of the
+     * asynchronous mode.
+     *
+     * @param policy the overflow policy.
+     * @return the number of dropped messages.
+     */
+    public long getDroppedMessages(final OverflowPolicy policy) {
+        return asyncSender != null ? asyncSender.getDroppedMessages(policy) : 0;
+    }
+
+    /**
+     * The number of messages that have been dropped because the queue of the asynchronous mode
+     * was full.
+     *
+     * @return the number of dropped messages.
+     */
+    public long getDroppedMessages() {
+        return asyncSender != null ? asyncSender.getDroppedMessages() : 0;
+    }
+
+    public int getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public void setShutdownTimeout(final int shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
     public GelfEncoder getEncoder() {
         return encoder;
     }
@@ -82,8 +234,19 @@ public abstract class AbstractGelfAppender extends UnsynchronizedAppenderBase<IL
         }
 
         try {
+            stopping = false;
             startAppender();
 
+            asyncSender = async
+                ? new AsyncSender("logback-gelf-sender-" + getName(), asyncQueueSize, asyncSlotSize,
+                    asyncWaitStrategy,
+                    new OverflowHandler(asyncOverflowPolicy, asyncBlockTimeout, asyncDropLevel),
+                    messageSender, this)
+                : null;
+            if (asyncSender != null) {
+                asyncSender.start();
+            }
+
             super.start();
         } catch (final Exception e) {
             addError("Couldn't start appender", e);
@@ -95,21 +258,82 @@ public abstract class AbstractGelfAppender extends UnsynchronizedAppenderBase<IL
     @SuppressWarnings("checkstyle:illegalcatch")
     @Override
     protected void append(final ILoggingEvent event) {
-        final byte[] binMessage = encoder.encode(event);
+        if (asyncSender != null && asyncSender.discard(event.getLevel())) {
+            return;
+        }
 
         try {
-            appendMessage(binMessage);
+            encoder.encodeInto(event, asyncSender != null ? messageEnqueuer : messageSender);
         } catch (final Exception e) {
             // Could be IOException or some kind of RuntimeException
             addError("Error sending GELF message", e);
         }
     }
 
+    private void enqueueMessage(final byte[] messageToSend, final int offset, final int length) {
+        asyncSender.enqueue(messageToSend, offset, length);
+    }
+
     protected abstract void appendMessage(byte[] messageToSend) throws IOException;
 
+    /**
+     * Sends a message that is only valid during this call. The array must not be retained.
+     * <p>
+     * The default implementation copies the message and delegates to {@link #appendMessage(byte[])}.
+     * Appenders should override this method to send the message without copying it.
+     *
+     * @param messageToSend the array containing the message
+     * @param offset the offset of the message within the array
+     * @param length the length of the message
+     * @throws IOException if sending fails
+     */
+    protected void appendMessage(final byte[] messageToSend, final int offset, final int length)
+        throws IOException {
+        appendMessage(Arrays.copyOfRange(messageToSend, offset, offset + length));
+    }
+
+    /**
+     * Checks if failed messages may be retried - while the appender is started and after it has
+     * been stopped until the shutdown timeout has elapsed.
+     *
+     * @return {@code true} if failed messages may be retried.
+     */
+    protected boolean canRetry() {
+        return isStarted() || stopping && shutdownDeadline - System.nanoTime() > 0;
+    }
+
+    /**
+     * The time (see {@link System#nanoTime()}) until messages may be sent while stopping.
+     *
+     * @return the shutdown deadline - only valid while or after the appender is stopped.
+     */
+    protected long getShutdownDeadline() {
+        return shutdownDeadline;
+    }
+
+    /**
+     * The number of threads that flush queued messages on stop - e.g. the number of connections.
+     *
+     * @return the number of threads.
+     */
+    protected int getFlushParallelism() {
+        return 1;
+    }
+
+    /**
+     * Stops accepting events, flushes queued messages (in parallel, see {@link #getFlushParallelism()})
+     * until the shutdown timeout has elapsed and closes the appender.
+     */
     @Override
     public void stop() {
+        shutdownDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeout);
+        stopping = true;
         super.stop();
+
+        if (asyncSender != null) {
+            // messages still being sent at the deadline are reported as dropped - close() aborts them
+            asyncSender.stop(shutdownDeadline, getFlushParallelism());
+        }
         try {
             close();
         } catch (final IOException e) {
@@ -117,6 +341,14 @@ public abstract class AbstractGelfAppender extends UnsynchronizedAppenderBase<IL
         }
     }
 
+    /**
+     * Closes the appender - implementations may flush messages until {@link #getShutdownDeadline()}.
+     * Called after the asynchronous sender has been stopped - but messages that were still being
+     * sent at the deadline may not have returned yet, closing must not let them open new
+     * connections.
+     *
+     * @throws IOException if closing fails.
+     */
     protected abstract void close() throws IOException;
 
 }
@@ -0,0 +1,281 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.core.spi.ContextAware;
+
+/**
+ * Decouples sending from logging: messages (encoded on the logging thread) are put into a
+ * {@link MessageRingBuffer} and sent by a dedicated sender thread. Enqueuing a message is
+ * lock-free and doesn't block - unless the {@link OverflowPolicy} says so while the buffer is full.
+ */
+final class AsyncSender {
+
+    private final MessageRingBuffer ringBuffer;
+    private final EncodedMessageConsumer sender;
+    private final WaitStrategy waitStrategy;
+    private final OverflowHandler overflowHandler;
+    private final ContextAware status;
+    private final Thread thread;
+    private final LongAdder sentMessages = new LongAdder();
+    private final LongAdder failedMessages = new LongAdder();
+
+    /**
+     * The number of messages taken from the queue after the deadline - they are dropped without
+     * being sent.
+     */
+    private final LongAdder expiredMessages = new LongAdder();
+
+    /**
+     * The number of messages being sent right now - by the sender thread and the flush threads.
+     */
+    private final AtomicInteger inFlightMessages = new AtomicInteger();
+
+    private volatile boolean running = true;
+
+    /**
+     * Time (see {@link System#nanoTime()}) until queued messages are sent after the sender has
+     * been stopped.
+     */
+    private volatile long deadline;
+
+    /**
+     * Set while the queue is full - to issue a single warning per overflow.
+     */
+    private volatile boolean overflowing;
+
+    /**
+     * Creates the sender.
+     *
+     * @param name the name of the sender thread.
+     * @param capacity the capacity of the ring buffer (number of messages).
+     * @param slotSize the size of the pre-allocated slots of the ring buffer.
+     * @param waitStrategy the strategy of the sender thread for waiting on new messages.
+     * @param overflowHandler handles messages while the ring buffer is full.
+     * @param sender sends a message - called by the sender thread only.
+     * @param status the component to report errors to.
+     */
+    AsyncSender(final String name, final int capacity, final int slotSize, final WaitStrategy waitStrategy,
+                final OverflowHandler overflowHandler, final EncodedMessageConsumer sender,
+                final ContextAware status) {
+        ringBuffer = new MessageRingBuffer(capacity, slotSize);
+        this.sender = sender;
+        this.waitStrategy = waitStrategy;
+        this.overflowHandler = overflowHandler;
+        this.status = status;
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Checks if a message of the given level has to be dropped before it is encoded - see
+     * {@link OverflowPolicy#DROP_BELOW_LEVEL}.
+     *
+     * @param level the level of the message.
+     * @return {@code true} if the message has to be dropped.
+     */
+    boolean discard(final Level level) {
+        return overflowHandler.discard(level, ringBuffer);
+    }
+
+    /**
+     * Enqueues a copy of the given message.
+     *
+     * @param message the array containing the message.
+     * @param offset the offset of the message within the array.
+     * @param length the length of the message.
+     * @return {@code false} if the message has been dropped because the queue is full.
+     */
+    boolean enqueue(final byte[] message, final int offset, final int length) {
+        if (ringBuffer.offer(message, offset, length)) {
+            if (overflowing) {
+                overflowing = false;
+            }
+            return true;
+        }
+
+        if (!overflowing) {
+            overflowing = true;
+            status.addWarn("Queue of asynchronous appender is full (capacity " + ringBuffer.capacity()
+                + ") - overflow policy " + overflowHandler.getPolicy() + " applies");
+        }
+        return overflowHandler.overflow(ringBuffer, message, offset, length);
+    }
+
+    /**
+     * The number of messages that have been dropped by the given overflow policy.
+     *
+     * @param policy the overflow policy.
+     * @return the number of dropped messages.
+     */
+    long getDroppedMessages(final OverflowPolicy policy) {
+        return overflowHandler.getDroppedMessages(policy);
+    }
+
+    /**
+     * The number of messages that have been dropped because the queue was full.
+     *
+     * @return the number of dropped messages.
+     */
+    long getDroppedMessages() {
+        return overflowHandler.getDroppedMessages();
+    }
+
+    /**
+     * The number of messages waiting to be sent.
+     *
+     * @return the number of queued messages.
+     */
+    int getQueueSize() {
+        return ringBuffer.size();
+    }
+
+    private void run() {
+        int idleCount = 0;
+        while (running) {
+            if (sendNext()) {
+                idleCount = 0;
+            } else {
+                waitStrategy.idle(idleCount);
+                idleCount = WaitStrategy.nextIdleCount(idleCount);
+            }
+        }
+
+        // send what has been queued before the sender was stopped
+        flush();
+    }
+
+    private void flush() {
+        while (!isExpired() && sendNext()) {
+            // continue
+        }
+    }
+
+    /**
+     * Checks if the sender has been stopped and the deadline for sending queued messages has
+     * been reached.
+     *
+     * @return {@code true} if queued messages must not be sent anymore.
+     */
+    private boolean isExpired() {
+        return !running && deadline - System.nanoTime() <= 0;
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private boolean sendNext() {
+        try {
+            if (!ringBuffer.poll(this::send)) {
+                return false;
+            }
+        } catch (final Exception e) {
+            // Could be IOException or some kind of RuntimeException
+            failedMessages.increment();
+            if (!isExpired()) {
+                // after the deadline, the message has already been reported as dropped by stop()
+                status.addError("Error sending GELF message", e);
+            }
+        }
+        return true;
+    }
+
+    private void send(final byte[] message, final int offset, final int length) throws IOException {
+        // the deadline could have been reached while this thread waited for the message
+        if (isExpired()) {
+            expiredMessages.increment();
+            return;
+        }
+
+        inFlightMessages.incrementAndGet();
+        try {
+            sender.accept(message, offset, length);
+            sentMessages.increment();
+        } finally {
+            inFlightMessages.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stops the sender thread after the queued messages have been sent - by the sender thread and
+     * additional flush threads in parallel. No message is sent after the deadline - queued
+     * messages are dropped then. Messages that are still being sent at the deadline are reported
+     * as dropped as well: the caller closes the destination afterwards, which aborts them. The
+     * number of flushed and dropped messages is reported as status.
+     *
+     * @param stopDeadline the time (see {@link System#nanoTime()}) until queued messages are sent.
+     * @param parallelism the number of threads that send the queued messages.
+     * @return the number of dropped messages.
+     */
+    int stop(final long stopDeadline, final int parallelism) {
+        final long sentBefore = sentMessages.sum();
+        final long failedBefore = failedMessages.sum();
+        final long expiredBefore = expiredMessages.sum();
+
+        deadline = stopDeadline;
+        running = false;
+        LockSupport.unpark(thread);
+
+        final Thread[] flushThreads = new Thread[Math.max(0, parallelism - 1)];
+        for (int i = 0; i < flushThreads.length; i++) {
+            flushThreads[i] = new Thread(this::flush, thread.getName() + "-flush-" + i);
+            flushThreads[i].setDaemon(true);
+            flushThreads[i].start();
+        }
+
+        join(thread, stopDeadline);
+        for (final Thread flushThread : flushThreads) {
+            join(flushThread, stopDeadline);
+        }
+
+        final int inFlight = inFlightMessages.get();
+        final int dropped = (int) Math.min(Integer.MAX_VALUE,
+            inFlight + ringBuffer.size() + expiredMessages.sum() - expiredBefore);
+        final long flushed = sentMessages.sum() - sentBefore;
+        final long failed = failedMessages.sum() - failedBefore;
+        if (dropped > 0) {
+            status.addWarn("Flushed " + flushed + " queued messages (" + failed + " failed) - "
+                + dropped + " messages dropped because the shutdown timeout has been exceeded ("
+                + inFlight + " of them still being sent)");
+        } else if (flushed + failed > 0) {
+            status.addInfo("Flushed " + flushed + " queued messages (" + failed + " failed)");
+        }
+        return dropped;
+    }
+
+    private static void join(final Thread thread, final long deadline) {
+        final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        try {
+            thread.join(Math.max(1, remaining));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
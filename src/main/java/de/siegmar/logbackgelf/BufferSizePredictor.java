@@ -0,0 +1,105 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * Predicts the encoded size of a message - to size the output buffer once instead of growing
+ * (and copying) it several times while a large message is written.
+ * <p>
+ * Messages are grouped into buckets by level and by the presence of a throwable: the size of an
+ * ERROR with stack trace differs considerably from the size of a DEBUG message, while messages
+ * of the same bucket tend to be of similar size. Each bucket keeps an exponentially weighted
+ * moving average of the recent message sizes. Concurrent updates may get lost - that only
+ * affects the accuracy of the estimate.
+ */
+final class BufferSizePredictor {
+
+    /**
+     * Weight of a new sample as power of two - each sample contributes 1/8 to the estimate.
+     */
+    private static final int WEIGHT_SHIFT = 3;
+
+    /**
+     * Headroom added to the estimate as power of two (1/4) - a slightly too large buffer is
+     * cheaper than an additional grow.
+     */
+    private static final int HEADROOM_SHIFT = 2;
+
+    private static final int LEVEL_BUCKETS = 5;
+
+    private final AtomicIntegerArray estimates = new AtomicIntegerArray(LEVEL_BUCKETS * 2);
+    private final int maxSize;
+
+    /**
+     * Creates a predictor.
+     *
+     * @param maxSize the maximum predicted size - to not exceed the size of buffers that are
+     *     retained for reuse.
+     */
+    BufferSizePredictor(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Predicts the encoded size of the given event.
+     *
+     * @param event the event to be encoded.
+     * @return the predicted size in bytes or 0 if there is no estimate yet.
+     */
+    int predict(final ILoggingEvent event) {
+        final int estimate = estimates.get(bucket(event));
+        return (int) Math.min(estimate + (long) (estimate >> HEADROOM_SHIFT), maxSize);
+    }
+
+    /**
+     * Records the actual encoded size of the given event.
+     *
+     * @param event the encoded event.
+     * @param size the encoded size in bytes.
+     */
+    void record(final ILoggingEvent event, final int size) {
+        final int bucket = bucket(event);
+        final int estimate = estimates.get(bucket);
+        estimates.lazySet(bucket, estimate == 0 ? size : estimate + (size - estimate >> WEIGHT_SHIFT));
+    }
+
+    /**
+     * Maps the event to one of the level buckets (TRACE to ERROR) - doubled for events with a
+     * throwable.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static int bucket(final ILoggingEvent event) {
+        final Level level = event.getLevel();
+        final int levelBucket = level == null
+            ? 0 : Math.max(0, Math.min(level.toInt() / 10_000, LEVEL_BUCKETS - 1));
+        return event.getThrowableProxy() != null ? LEVEL_BUCKETS + levelBucket : levelBucket;
+    }
+
+    @Override
+    public String toString() {
+        return "BufferSizePredictor" + estimates;
+    }
+
+}
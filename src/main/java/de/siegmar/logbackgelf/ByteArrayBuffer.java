@@ -0,0 +1,156 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer that gives direct access to its backing array. Unlike
+ * {@link java.io.ByteArrayOutputStream} it is unsynchronized and doesn't require a final copy
+ * to hand over its contents.
+ */
+final class ByteArrayBuffer extends OutputStream {
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private byte[] buf;
+    private int count;
+
+    ByteArrayBuffer(final int initialCapacity) {
+        buf = new byte[initialCapacity];
+    }
+
+    /**
+     * Ensures that the backing array can hold at least {@code minCapacity} bytes.
+     *
+     * @param minCapacity the required minimum capacity.
+     */
+    void ensureCapacity(final int minCapacity) {
+        if (minCapacity > buf.length) {
+            grow(minCapacity);
+        }
+    }
+
+    private void grow(final int minCapacity) {
+        if (minCapacity < 0 || minCapacity > MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("Required buffer size too large");
+        }
+        final int newCapacity = (int) Math.min(Math.max((long) buf.length << 1, minCapacity), MAX_ARRAY_SIZE);
+        buf = Arrays.copyOf(buf, newCapacity);
+    }
+
+    @Override
+    public void write(final int b) {
+        ensureCapacity(count + 1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    @Override
+    public void write(final byte[] b) {
+        write(b, 0, b.length);
+    }
+
+    /**
+     * Writes the characters of the given string without any escaping or encoding. Only
+     * characters of the ASCII range are allowed.
+     *
+     * @param str the string to write.
+     */
+    void writeAscii(final String str) {
+        final int len = str.length();
+        ensureCapacity(count + len);
+        for (int i = 0; i < len; i++) {
+            buf[count++] = (byte) str.charAt(i);
+        }
+    }
+
+    /**
+     * Writes the decimal digits of a non-negative number - left padded with zeros to
+     * {@code minDigits} digits.
+     *
+     * @param value the non-negative number to write.
+     * @param minDigits the minimum number of digits to write.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    void writeDigits(final long value, final int minDigits) {
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        final int len = Math.max(digits, minDigits);
+        ensureCapacity(count + len);
+
+        long v = value;
+        for (int pos = count + len - 1; pos >= count; pos--) {
+            buf[pos] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        count += len;
+    }
+
+    /**
+     * Returns the backing array. Only the first {@link #size()} bytes are valid. The array
+     * instance may change with any write operation.
+     *
+     * @return the backing array.
+     */
+    @SuppressWarnings("PMD.MethodReturnsInternalArray")
+    byte[] array() {
+        return buf;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Sets the number of valid bytes - used by writers that write directly into the
+     * {@link #array() backing array}.
+     *
+     * @param size the new size.
+     */
+    void size(final int size) {
+        if (size < 0 || size > buf.length) {
+            throw new IndexOutOfBoundsException("Size " + size + " out of bounds for capacity " + buf.length);
+        }
+        count = size;
+    }
+
+    int capacity() {
+        return buf.length;
+    }
+
+    void reset() {
+        count = 0;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.pattern.ExtendedThrowableProxyConverter;
+import ch.qos.logback.classic.pattern.ThrowableHandlingConverter;
+import ch.qos.logback.classic.pattern.ThrowableProxyConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.core.Context;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.Layout;
+
+/**
+ * Renders short and full message of the default patterns ({@code %m%nopex} and {@code %m%n})
+ * without running a {@link PatternLayout} - the formatted message is shared by both and the
+ * throwable is only rendered if present.
+ * <p>
+ * The output is identical to the one of the pattern layouts: {@link PatternLayout} appends
+ * a throwable converter to a pattern without one - that is what {@link #fullMessage} does, too.
+ * Unless a {@link StackTraceWriter} is used - it renders the throwable in the same format but
+ * may filter and truncate it.
+ */
+final class DefaultMessageRenderer {
+
+    /**
+     * Conversion words used by the default patterns - the fast path must not be used if any of
+     * them has been redefined by a custom conversion rule.
+     */
+    private static final Set<String> CONVERSION_WORDS =
+        Set.of("m", "msg", "message", "n", "nopex", "nopexception");
+
+    private final ThrowableHandlingConverter throwableConverter;
+
+    /**
+     * Cache of escaped stack traces - {@code null} if disabled.
+     */
+    private final StackTraceCache stackTraceCache;
+
+    /**
+     * Writer used instead of the throwable converter - {@code null} if not configured.
+     */
+    private final StackTraceWriter stackTraceWriter;
+
+    private DefaultMessageRenderer(final Context context, final int stackTraceCacheSize,
+                                   final StackTraceWriter stackTraceWriter) {
+        throwableConverter = context instanceof LoggerContext && ((LoggerContext) context).isPackagingDataEnabled()
+            ? new ExtendedThrowableProxyConverter()
+            : new ThrowableProxyConverter();
+        throwableConverter.setContext(context);
+        throwableConverter.start();
+        stackTraceCache = stackTraceCacheSize > 0 ? new StackTraceCache(stackTraceCacheSize) : null;
+        this.stackTraceWriter = stackTraceWriter;
+    }
+
+    /**
+     * Creates a renderer if the given layouts are the default pattern layouts.
+     *
+     * @param context the logger context.
+     * @param shortMessageLayout the layout used for the short message.
+     * @param shortPattern the default pattern of the short message.
+     * @param fullMessageLayout the layout used for the full message.
+     * @param fullPattern the default pattern of the full message.
+     * @param stackTraceCacheSize the maximum number of cached stack traces - 0 to disable caching.
+     * @param stackTraceWriter the writer used to render throwables - {@code null} to use the
+     *     throwable converter of {@code %m%n}.
+     * @return the renderer or {@code null} if any of the layouts differs from the default.
+     */
+    static DefaultMessageRenderer create(final Context context,
+                                         final Layout<ILoggingEvent> shortMessageLayout, final String shortPattern,
+                                         final Layout<ILoggingEvent> fullMessageLayout, final String fullPattern,
+                                         final int stackTraceCacheSize, final StackTraceWriter stackTraceWriter) {
+        if (isDefaultLayout(shortMessageLayout, shortPattern) && isDefaultLayout(fullMessageLayout, fullPattern)
+            && !hasCustomConversionRule(context)) {
+            return new DefaultMessageRenderer(context, stackTraceCacheSize, stackTraceWriter);
+        }
+
+        return null;
+    }
+
+    private static boolean isDefaultLayout(final Layout<ILoggingEvent> layout, final String pattern) {
+        return layout.getClass() == PatternLayout.class && layout.isStarted()
+            && pattern.equals(((PatternLayout) layout).getPattern());
+    }
+
+    private static boolean hasCustomConversionRule(final Context context) {
+        if (context == null) {
+            return false;
+        }
+
+        final Object ruleRegistry = context.getObject(CoreConstants.PATTERN_RULE_REGISTRY);
+        return ruleRegistry instanceof Map
+            && CONVERSION_WORDS.stream().anyMatch(((Map<?, ?>) ruleRegistry)::containsKey);
+    }
+
+    /**
+     * Renders the message like {@code %m} does.
+     *
+     * @param event the event to render.
+     * @return the formatted message.
+     */
+    String message(final ILoggingEvent event) {
+        return String.valueOf(event.getFormattedMessage());
+    }
+
+    /**
+     * Renders the full message like {@code %m%n} does.
+     *
+     * @param event the event to render.
+     * @param message the formatted message, as returned by {@link #message(ILoggingEvent)}.
+     * @return the full message.
+     */
+    String fullMessage(final ILoggingEvent event, final String message) {
+        final IThrowableProxy throwableProxy = event.getThrowableProxy();
+        if (throwableProxy == null) {
+            return fullMessageWithoutThrowable(message);
+        }
+
+        return fullMessageWithoutThrowable(message) + (stackTraceWriter != null
+            ? stackTraceWriter.toString(throwableProxy)
+            : throwableConverter.convert(event));
+    }
+
+    /**
+     * Renders the part of the full message that precedes the throwable.
+     *
+     * @param message the formatted message, as returned by {@link #message(ILoggingEvent)}.
+     * @return the full message without throwable.
+     */
+    String fullMessageWithoutThrowable(final String message) {
+        return message + CoreConstants.LINE_SEPARATOR;
+    }
+
+    /**
+     * Returns a writer for the throwable part of the full message that writes it JSON escaped and
+     * UTF-8 encoded - served from the stack trace cache if the same throwable has been rendered before
+     * or streamed by the stack trace writer.
+     *
+     * @param event the event to render.
+     * @return the writer of the escaped throwable or {@code null} if the event has no throwable or
+     *     neither caching nor a stack trace writer is enabled.
+     */
+    Consumer<ByteArrayBuffer> escapedThrowable(final ILoggingEvent event) {
+        final IThrowableProxy throwableProxy = event.getThrowableProxy();
+        if (throwableProxy == null) {
+            return null;
+        }
+
+        if (stackTraceCache != null) {
+            final byte[] stackTrace = stackTraceCache.computeIfAbsent(throwableProxy, () -> stackTraceWriter != null
+                ? stackTraceWriter.toEscapedBytes(throwableProxy)
+                : Utf8JsonEncoder.escape(throwableConverter.convert(event)));
+            return buf -> buf.write(stackTrace);
+        }
+
+        if (stackTraceWriter != null) {
+            return buf -> stackTraceWriter.write(throwableProxy, buf);
+        }
+
+        return null;
+    }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.io.IOException;
+
+/**
+ * Consumer of an encoded GELF message as passed by {@link GelfEncoder#encodeInto(
+ * ch.qos.logback.classic.spi.ILoggingEvent, EncodedMessageConsumer)}.
+ */
+@FunctionalInterface
+public interface EncodedMessageConsumer {
+
+    /**
+     * Consume an encoded message. The array is only valid during this call and must not be
+     * retained.
+     *
+     * @param message the array containing the encoded message
+     * @param offset the offset of the message within the array
+     * @param length the length of the message
+     * @throws IOException if the message couldn't be processed
+     */
+    void accept(byte[] message, int offset, int length) throws IOException;
+
+}
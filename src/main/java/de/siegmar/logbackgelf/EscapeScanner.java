@@ -0,0 +1,39 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package de.siegmar.logbackgelf;
+
+/**
+ * Finds the end of a run of characters that can be written to UTF-8 encoded JSON as they are.
+ *
+ * @see EscapeScanners
+ */
+interface EscapeScanner {
+
+    /**
+     * Finds the next character that {@link SimpleJsonEncoder#requiresEscaping(char) requires escaping}
+     * or is not ASCII.
+     *
+     * @param chars the characters to scan.
+     * @param from the index to start scanning at (inclusive).
+     * @param to the index to stop scanning at (exclusive).
+     * @return the index of the first character that ends the run or {@code to} if there is none.
+     */
+    int runEnd(char[] chars, int from, int to);
+
+}
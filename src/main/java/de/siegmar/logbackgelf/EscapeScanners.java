@@ -0,0 +1,56 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package de.siegmar.logbackgelf;
+
+/**
+ * Provides the vectorized {@link EscapeScanner} implementation.
+ * <p>
+ * The implementation (using the incubating Vector API) is only available if the
+ * {@code jdk.incubator.vector} module is present - e.g. by starting the JVM with
+ * {@code --add-modules jdk.incubator.vector}. Otherwise, strings are scanned char by char.
+ */
+final class EscapeScanners {
+
+    /**
+     * Vectorized implementation - {@code null} if the Vector API is not available.
+     */
+    static final EscapeScanner VECTORIZED = loadVectorized();
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_SCANNER_CLASS = "de.siegmar.logbackgelf.VectorEscapeScanner";
+
+    private EscapeScanners() {
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private static EscapeScanner loadVectorized() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+
+        try {
+            return (EscapeScanner) Class.forName(VECTOR_SCANNER_CLASS)
+                .getDeclaredConstructor().newInstance();
+        } catch (final ReflectiveOperationException | LinkageError e) {
+            // Vector API not usable (e.g. incompatible incubator version) - use scalar implementation
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,281 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import de.siegmar.logbackgelf.mappers.AbstractFixedNameFieldMapper;
+import de.siegmar.logbackgelf.mappers.CallerDataFieldMapper;
+import de.siegmar.logbackgelf.mappers.KeyValueFieldMapper;
+import de.siegmar.logbackgelf.mappers.MarkerFieldMapper;
+import de.siegmar.logbackgelf.mappers.MdcDataFieldMapper;
+import de.siegmar.logbackgelf.mappers.RootExceptionDataFieldMapper;
+import de.siegmar.logbackgelf.mappers.SimpleFieldMapper;
+
+/**
+ * The field mappers of an encoder, compiled on {@link GelfEncoder#start()} into a plan that streams
+ * the additional fields of an event:
+ * <ul>
+ *     <li>each kind of built-in mapper is called from its own (monomorphic) call site instead of
+ *     through one call site for all mappers</li>
+ *     <li>the names of fixed name mappers ({@link AbstractFixedNameFieldMapper}) are validated once -
+ *     a mapper with an invalid name is disabled with a single warning instead of a warning per event.
+ *     The sink trusts the validated name while the mapper streams its field. Duplicate names are
+ *     still rejected per event (only if both mappers provide a value)</li>
+ *     <li>custom mappers that don't implement {@link GelfFieldMapper#streamField} are called with
+ *     the reusable value handler of the sink - instead of a new adapter per event</li>
+ * </ul>
+ */
+final class FieldMapperPlan {
+
+    private static final List<Class<?>> BUILT_IN_TYPES = List.of(SimpleFieldMapper.class,
+        CallerDataFieldMapper.class, RootExceptionDataFieldMapper.class, KeyValueFieldMapper.class,
+        MarkerFieldMapper.class, MdcDataFieldMapper.class);
+
+    private final GelfEncoder encoder;
+    private final SimpleFieldMapper<?>[] simpleMappers;
+    private final CallerDataFieldMapper callerDataMapper;
+    private final RootExceptionDataFieldMapper rootExceptionMapper;
+    private final KeyValueFieldMapper keyValueMapper;
+    private final MarkerFieldMapper markerMapper;
+    private final MdcDataFieldMapper mdcMapper;
+    private final GelfFieldMapper<?>[] customMappers;
+
+    /**
+     * Flags of custom mappers that implement {@link GelfFieldMapper#streamField} themselves.
+     */
+    private final boolean[] customStreaming;
+
+    /**
+     * Validated field names of custom mappers - {@code null} for mappers without a fixed name.
+     */
+    private final String[] customFieldNames;
+
+    private FieldMapperPlan(final GelfEncoder encoder, final List<GelfFieldMapper<?>> builtInMappers,
+                            final List<GelfFieldMapper<?>> customMappers) {
+        for (final GelfFieldMapper<?> mapper : builtInMappers) {
+            if (BUILT_IN_TYPES.stream().noneMatch(type -> type.isInstance(mapper))) {
+                throw new IllegalStateException("Unsupported built-in field mapper " + mapper.getClass());
+            }
+        }
+
+        this.encoder = encoder;
+        simpleMappers = builtInMappers.stream()
+            .filter(SimpleFieldMapper.class::isInstance)
+            .toArray(SimpleFieldMapper<?>[]::new);
+        callerDataMapper = find(builtInMappers, CallerDataFieldMapper.class);
+        rootExceptionMapper = find(builtInMappers, RootExceptionDataFieldMapper.class);
+        keyValueMapper = find(builtInMappers, KeyValueFieldMapper.class);
+        markerMapper = find(builtInMappers, MarkerFieldMapper.class);
+        mdcMapper = find(builtInMappers, MdcDataFieldMapper.class);
+        this.customMappers = customMappers.toArray(new GelfFieldMapper<?>[0]);
+        customStreaming = new boolean[this.customMappers.length];
+        customFieldNames = new String[this.customMappers.length];
+        for (int i = 0; i < customStreaming.length; i++) {
+            customStreaming[i] = implementsStreamField(this.customMappers[i]);
+            customFieldNames[i] = fixedFieldName(this.customMappers[i]);
+        }
+    }
+
+    /**
+     * Compiles the plan.
+     *
+     * @param encoder the encoder - used to validate field names and to report errors.
+     * @param builtInMappers the built-in mappers, in the order they are added by the encoder.
+     * @param customMappers the custom mappers.
+     * @return the plan.
+     */
+    static FieldMapperPlan compile(final GelfEncoder encoder, final List<GelfFieldMapper<?>> builtInMappers,
+                                   final List<GelfFieldMapper<?>> customMappers) {
+        return new FieldMapperPlan(encoder, validMappers(encoder, builtInMappers),
+            validMappers(encoder, customMappers));
+    }
+
+    private static List<GelfFieldMapper<?>> validMappers(final GelfEncoder encoder,
+                                                         final List<GelfFieldMapper<?>> mappers) {
+        final List<GelfFieldMapper<?>> validMappers = new ArrayList<>();
+        for (final GelfFieldMapper<?> mapper : mappers) {
+            if (hasValidName(encoder, mapper)) {
+                validMappers.add(mapper);
+            }
+        }
+        return validMappers;
+    }
+
+    private static <T> T find(final List<GelfFieldMapper<?>> mappers, final Class<T> type) {
+        for (final GelfFieldMapper<?> mapper : mappers) {
+            if (type.isInstance(mapper)) {
+                return type.cast(mapper);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Validates the field name of fixed name mappers. Duplicate field names are not checked here - the
+     * field of the second mapper is only rejected if the first mapper provides a value, too.
+     *
+     * @return {@code false} if the mapper has an invalid field name.
+     */
+    private static boolean hasValidName(final GelfEncoder encoder, final GelfFieldMapper<?> mapper) {
+        final String fieldName = fixedFieldName(mapper);
+        if (fieldName == null) {
+            return true;
+        }
+
+        try {
+            encoder.validateFieldName(fieldName);
+            return true;
+        } catch (final IllegalArgumentException e) {
+            encoder.addWarn("Disabled field mapper for field " + fieldName, e);
+            return false;
+        }
+    }
+
+    private static String fixedFieldName(final GelfFieldMapper<?> mapper) {
+        return mapper instanceof AbstractFixedNameFieldMapper
+            ? ((AbstractFixedNameFieldMapper<?>) mapper).getFieldName()
+            : null;
+    }
+
+    private static boolean implementsStreamField(final GelfFieldMapper<?> mapper) {
+        try {
+            return mapper.getClass().getMethod("streamField", ILoggingEvent.class, GelfFieldSink.class)
+                .getDeclaringClass() != GelfFieldMapper.class;
+        } catch (final NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Streams the fields of all mappers to the sink.
+     *
+     * @param event the event to map.
+     * @param sink the sink of the message.
+     */
+    void execute(final ILoggingEvent event, final StreamingFieldSink sink) {
+        for (final SimpleFieldMapper<?> mapper : simpleMappers) {
+            streamSimple(mapper, event, sink);
+        }
+        if (callerDataMapper != null) {
+            streamCallerData(event, sink);
+        }
+        if (rootExceptionMapper != null) {
+            streamRootException(event, sink);
+        }
+        if (keyValueMapper != null) {
+            streamKeyValues(event, sink);
+        }
+        if (markerMapper != null) {
+            streamMarker(event, sink);
+        }
+        if (mdcMapper != null) {
+            streamMdc(event, sink);
+        }
+        for (int i = 0; i < customMappers.length; i++) {
+            streamCustom(i, event, sink);
+        }
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private void streamSimple(final SimpleFieldMapper<?> mapper, final ILoggingEvent event,
+                              final StreamingFieldSink sink) {
+        sink.trustFieldName(mapper.getFieldName());
+        try {
+            mapper.streamField(event, sink);
+        } catch (final Exception e) {
+            mapperFailed(e);
+        } finally {
+            sink.trustFieldName(null);
+        }
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private void streamCallerData(final ILoggingEvent event, final StreamingFieldSink sink) {
+        try {
+            callerDataMapper.streamField(event, sink);
+        } catch (final Exception e) {
+            mapperFailed(e);
+        }
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private void streamRootException(final ILoggingEvent event, final StreamingFieldSink sink) {
+        try {
+            rootExceptionMapper.streamField(event, sink);
+        } catch (final Exception e) {
+            mapperFailed(e);
+        }
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private void streamKeyValues(final ILoggingEvent event, final StreamingFieldSink sink) {
+        try {
+            keyValueMapper.streamField(event, sink);
+        } catch (final Exception e) {
+            mapperFailed(e);
+        }
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private void streamMarker(final ILoggingEvent event, final StreamingFieldSink sink) {
+        sink.trustFieldName(markerMapper.getFieldName());
+        try {
+            markerMapper.streamField(event, sink);
+        } catch (final Exception e) {
+            mapperFailed(e);
+        } finally {
+            sink.trustFieldName(null);
+        }
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private void streamMdc(final ILoggingEvent event, final StreamingFieldSink sink) {
+        try {
+            mdcMapper.streamField(event, sink);
+        } catch (final Exception e) {
+            mapperFailed(e);
+        }
+    }
+
+    @SuppressWarnings({"checkstyle:IllegalCatch", "unchecked"})
+    private void streamCustom(final int idx, final ILoggingEvent event, final StreamingFieldSink sink) {
+        sink.trustFieldName(customFieldNames[idx]);
+        try {
+            if (customStreaming[idx]) {
+                customMappers[idx].streamField(event, sink);
+            } else {
+                // the sink accepts values of any type
+                ((GelfFieldMapper<Object>) customMappers[idx]).mapField(event, sink.valueHandler());
+            }
+        } catch (final Exception e) {
+            mapperFailed(e);
+        } finally {
+            sink.trustFieldName(null);
+        }
+    }
+
+    private void mapperFailed(final Exception e) {
+        encoder.addError("Exception in field mapper", e);
+    }
+
+}
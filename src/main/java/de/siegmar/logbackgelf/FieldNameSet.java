@@ -0,0 +1,108 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.Collection;
+
+/**
+ * Small open-addressing (linear probing) hash set of field names used to detect duplicate fields
+ * of a single message. Permanent names (e.g. static fields) survive {@link #clear()} - clearing
+ * only touches the slots of names added since the last clear.
+ */
+final class FieldNameSet {
+
+    private static final int MIN_CAPACITY = 32;
+
+    private final String[] permanentNames;
+
+    private String[] table;
+    private int mask;
+    private int[] addedSlots;
+    private int addedCount;
+
+    FieldNameSet(final Collection<String> permanentNames) {
+        this.permanentNames = permanentNames.toArray(new String[0]);
+        rebuild(Math.max(MIN_CAPACITY, Integer.highestOneBit(this.permanentNames.length * 4 - 1) << 1));
+    }
+
+    private void rebuild(final int capacity) {
+        final String[] oldTable = table;
+        final int[] oldAddedSlots = addedSlots;
+        final int oldAddedCount = addedCount;
+
+        table = new String[capacity];
+        mask = capacity - 1;
+        addedSlots = new int[capacity / 2];
+        addedCount = 0;
+
+        for (final String name : permanentNames) {
+            table[slotOf(name)] = name;
+        }
+        for (int i = 0; i < oldAddedCount; i++) {
+            add(oldTable[oldAddedSlots[i]]);
+        }
+    }
+
+    private int slotOf(final String name) {
+        final int h = name.hashCode();
+        int slot = (h ^ h >>> 16) & mask;
+        while (table[slot] != null && !table[slot].equals(name)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Adds a name to the set.
+     *
+     * @param name the name to add.
+     * @return {@code true} if the name was added, {@code false} if it was already contained.
+     */
+    boolean add(final String name) {
+        final int slot = slotOf(name);
+        if (table[slot] != null) {
+            return false;
+        }
+
+        if (permanentNames.length + addedCount + 1 > addedSlots.length) {
+            rebuild(table.length * 2);
+            return add(name);
+        }
+
+        table[slot] = name;
+        addedSlots[addedCount++] = slot;
+        return true;
+    }
+
+    boolean contains(final String name) {
+        return table[slotOf(name)] != null;
+    }
+
+    /**
+     * Removes all names except the permanent ones.
+     */
+    void clear() {
+        for (int i = 0; i < addedCount; i++) {
+            table[addedSlots[i]] = null;
+        }
+        addedCount = 0;
+    }
+
+}
@@ -26,20 +26,24 @@ import ch.qos.logback.core.CoreConstants;
 import ch.qos.logback.core.Layout;
 import ch.qos.logback.core.encoder.EncoderBase;
 import de.siegmar.logbackgelf.mappers.CallerDataFieldMapper;
+import de.siegmar.logbackgelf.mappers.KeyValueFieldMapper;
 import de.siegmar.logbackgelf.mappers.MarkerFieldMapper;
 import de.siegmar.logbackgelf.mappers.MdcDataFieldMapper;
 import de.siegmar.logbackgelf.mappers.RootExceptionDataFieldMapper;
 import de.siegmar.logbackgelf.mappers.SimpleFieldMapper;
 
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 /**
  * This class is responsible for transforming a Logback log event to a GELF message.
@@ -47,9 +51,13 @@ import java.util.regex.Pattern;
 @SuppressWarnings("checkstyle:classdataabstractioncoupling")
 public class GelfEncoder extends EncoderBase<ILoggingEvent> {
 
-    private static final Pattern VALID_ADDITIONAL_FIELD_PATTERN = Pattern.compile("^[\\w.-]*$");
+    private static final String VALID_ADDITIONAL_FIELD_REGEX = "^[\\w.-]*$";
     private static final String DEFAULT_SHORT_PATTERN = "%m%nopex";
     private static final String DEFAULT_FULL_PATTERN = "%m%n";
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int DEFAULT_MAX_POOLED_BUFFER_SIZE = 65_536;
+    private static final int DEFAULT_FIELD_CACHE_SIZE = 4096;
+    private static final int DEFAULT_STACK_TRACE_CACHE_SIZE = 128;
 
     /**
      * Origin hostname - will be auto-detected if not specified.
@@ -133,6 +141,50 @@ public class GelfEncoder extends EncoderBase<ILoggingEvent> {
      */
     private boolean numbersAsString;
 
+    /**
+     * Maximum size (in bytes) of an encode buffer that is kept for reuse. Buffers that grew beyond
+     * this size (e.g. because of a huge stack trace) are discarded after use.
+     * Default: {@value DEFAULT_MAX_POOLED_BUFFER_SIZE} bytes.
+     */
+    private int maxPooledBufferSize = DEFAULT_MAX_POOLED_BUFFER_SIZE;
+
+    /**
+     * Maximum number of entries of each cache of serialized fields (e.g. logger names, thread names and MDC).
+     * 0 disables caching. Default: {@value DEFAULT_FIELD_CACHE_SIZE}.
+     */
+    private int fieldCacheSize = DEFAULT_FIELD_CACHE_SIZE;
+
+    /**
+     * Maximum number of rendered stack traces that are cached (least recently used ones are evicted).
+     * Only used with the default short and full message layouts. 0 disables caching.
+     * Default: {@value DEFAULT_STACK_TRACE_CACHE_SIZE}.
+     */
+    private int stackTraceCacheSize = DEFAULT_STACK_TRACE_CACHE_SIZE;
+
+    /**
+     * Package prefixes of stack trace frames that are skipped (e.g. {@code sun.reflect}). Default: none.
+     */
+    private final List<String> stackTraceFilters = new ArrayList<>();
+
+    /**
+     * Maximum number of stack trace frames written per throwable (and per cause). 0 means no limit.
+     * Default: 0.
+     */
+    private int maxStackTraceDepth;
+
+    /**
+     * Maximum size (in bytes) of the stack trace in the encoded full message - lines exceeding it are
+     * replaced by a truncation marker. 0 means no limit. Default: 0.
+     */
+    private int maxStackTraceSize;
+
+    /**
+     * Maximum size (in bytes) of an encoded message - larger messages are truncated (full message first,
+     * then the longest additional fields) and marked by the field {@value MessageTruncator#TRUNCATED_FIELD}.
+     * 0 means no limit. Default: 0.
+     */
+    private int maxMessageSize;
+
     /**
      * Additional, static fields to send to graylog. Defaults: none.
      */
@@ -142,6 +194,36 @@ public class GelfEncoder extends EncoderBase<ILoggingEvent> {
 
     private final List<GelfFieldMapper<?>> fieldMappers = new ArrayList<>();
 
+    private final List<GelfFieldCache<?, ?>> fieldCaches = new ArrayList<>();
+
+    /**
+     * The field mappers, compiled on {@link #start()} - used if fields are streamed.
+     */
+    private FieldMapperPlan fieldMapperPlan;
+
+    private StripedPool<StreamingFieldSink> sinkPool;
+
+    /**
+     * Pre-sizes the buffer of a message - created on {@link #start()}.
+     */
+    private BufferSizePredictor bufferSizePredictor;
+
+    /**
+     * If true, additional fields are streamed directly into the encoded message - otherwise they are
+     * collected via {@link #collectAdditionalFields(ILoggingEvent)} and {@link #buildGelfMessage}.
+     */
+    private boolean streamingFields;
+
+    /**
+     * Pre-serialized version, host and static fields - built on {@link #start()}.
+     */
+    private byte[] messageHeader;
+
+    /**
+     * Renderer for the default short and full message layouts - {@code null} if custom layouts are used.
+     */
+    private DefaultMessageRenderer defaultMessageRenderer;
+
     public String getOriginHost() {
         return originHost;
     }
@@ -262,6 +344,81 @@ public class GelfEncoder extends EncoderBase<ILoggingEvent> {
         this.fullMessageLayout = fullMessageLayout;
     }
 
+    public int getMaxPooledBufferSize() {
+        return maxPooledBufferSize;
+    }
+
+    public void setMaxPooledBufferSize(final int maxPooledBufferSize) {
+        this.maxPooledBufferSize = maxPooledBufferSize;
+    }
+
+    public int getFieldCacheSize() {
+        return fieldCacheSize;
+    }
+
+    public void setFieldCacheSize(final int fieldCacheSize) {
+        this.fieldCacheSize = fieldCacheSize;
+    }
+
+    public int getStackTraceCacheSize() {
+        return stackTraceCacheSize;
+    }
+
+    public void setStackTraceCacheSize(final int stackTraceCacheSize) {
+        this.stackTraceCacheSize = stackTraceCacheSize;
+    }
+
+    public List<String> getStackTraceFilters() {
+        return Collections.unmodifiableList(stackTraceFilters);
+    }
+
+    public void addStackTraceFilter(final String packagePrefix) {
+        stackTraceFilters.add(packagePrefix);
+    }
+
+    public int getMaxStackTraceDepth() {
+        return maxStackTraceDepth;
+    }
+
+    public void setMaxStackTraceDepth(final int maxStackTraceDepth) {
+        this.maxStackTraceDepth = maxStackTraceDepth;
+    }
+
+    public int getMaxStackTraceSize() {
+        return maxStackTraceSize;
+    }
+
+    public void setMaxStackTraceSize(final int maxStackTraceSize) {
+        this.maxStackTraceSize = maxStackTraceSize;
+    }
+
+    public int getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    public void setMaxMessageSize(final int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * Returns the caches of serialized fields used by the built-in field mappers - e.g. to monitor
+     * their hit rate. Available after {@link #start()}.
+     *
+     * @return the field caches.
+     */
+    public List<GelfFieldCache<?, ?>> getFieldCaches() {
+        return Collections.unmodifiableList(fieldCaches);
+    }
+
+    /**
+     * Returns the built-in field mappers - available after {@link #start()}.
+     *
+     * @return the built-in field mappers.
+     */
+    List<GelfFieldMapper<?>> getBuiltInFieldMappers() {
+        return Collections.unmodifiableList(builtInFieldMappers);
+    }
+
     public Map<String, Object> getStaticFields() {
         return Collections.unmodifiableMap(staticFields);
     }
@@ -294,25 +451,44 @@ public class GelfEncoder extends EncoderBase<ILoggingEvent> {
     }
 
     private void addField(final Map<String, Object> dst, final String fieldName, final Object fieldValue) {
+        validateFieldName(fieldName);
+
+        if (dst.putIfAbsent(fieldName, convertToNumberIfNeeded(fieldValue)) != null) {
+            throw new IllegalArgumentException("Field mapper tried to set already defined key '" + fieldName + "'.");
+        }
+    }
+
+    void validateFieldName(final String fieldName) {
         if (fieldName.isEmpty()) {
             throw new IllegalArgumentException("fieldName key must not be empty");
         }
         if ("id".equalsIgnoreCase(fieldName)) {
             throw new IllegalArgumentException("fieldName key name 'id' is prohibited");
         }
-        if (!VALID_ADDITIONAL_FIELD_PATTERN.matcher(fieldName).matches()) {
+        if (!isValidFieldName(fieldName)) {
             throw new IllegalArgumentException("fieldName key '" + fieldName + "' is illegal. "
-                + "Keys must apply to regex " + VALID_ADDITIONAL_FIELD_PATTERN);
+                + "Keys must apply to regex " + VALID_ADDITIONAL_FIELD_REGEX);
         }
+    }
 
-        final Object oldValue = dst.putIfAbsent(fieldName, convertToNumberIfNeeded(fieldValue));
-        if (oldValue != null) {
-            throw new IllegalArgumentException("Field mapper tried to set already defined key '" + fieldName + "'.");
+    /**
+     * Checks the field name against {@value VALID_ADDITIONAL_FIELD_REGEX} - without the overhead of a regex.
+     */
+    @SuppressWarnings("checkstyle:BooleanExpressionComplexity")
+    private static boolean isValidFieldName(final String fieldName) {
+        for (int i = 0; i < fieldName.length(); i++) {
+            final char ch = fieldName.charAt(i);
+            if (!(ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z' || ch >= '0' && ch <= '9'
+                || ch == '_' || ch == '.' || ch == '-')) {
+                return false;
+            }
         }
+        return true;
     }
 
-    private Object convertToNumberIfNeeded(final Object value) {
-        if (numbersAsString || !(value instanceof String)) {
+    Object convertToNumberIfNeeded(final Object value) {
+        if (numbersAsString || !(value instanceof String)
+            || NumberScanner.scan((String) value) == NumberScanner.Result.NONE) {
             return value;
         }
 
@@ -334,11 +510,52 @@ public class GelfEncoder extends EncoderBase<ILoggingEvent> {
         if (fullMessageLayout == null) {
             fullMessageLayout = buildPattern(DEFAULT_FULL_PATTERN);
         }
+        final StackTraceWriter stackTraceWriter = !stackTraceFilters.isEmpty()
+            || maxStackTraceDepth > 0 || maxStackTraceSize > 0
+            ? new StackTraceWriter(stackTraceFilters, maxStackTraceDepth, maxStackTraceSize)
+            : null;
+        if (!isOverridden("buildShortMessage", ILoggingEvent.class)
+            && !isOverridden("buildFullMessage", ILoggingEvent.class)) {
+            defaultMessageRenderer = DefaultMessageRenderer.create(context,
+                shortMessageLayout, DEFAULT_SHORT_PATTERN, fullMessageLayout, DEFAULT_FULL_PATTERN,
+                stackTraceCacheSize, stackTraceWriter);
+        }
+        if (stackTraceWriter != null && defaultMessageRenderer == null) {
+            addWarn("stackTraceFilter, maxStackTraceDepth and maxStackTraceSize are ignored "
+                + "as a custom short or full message layout is used");
+        }
         addBuiltInFieldMappers();
+        messageHeader = GelfMessage.buildHeader(originHost, staticFields);
+        streamingFields = !isOverridden("buildGelfMessage", long.class, int.class, String.class, String.class,
+            Map.class) && !isOverridden("collectAdditionalFields", ILoggingEvent.class);
+        final Set<String> staticFieldNames = Set.copyOf(staticFields.keySet());
+        if (streamingFields) {
+            fieldMapperPlan = FieldMapperPlan.compile(this, builtInFieldMappers, fieldMappers);
+        }
+        bufferSizePredictor = new BufferSizePredictor(maxPooledBufferSize);
+        sinkPool = new StripedPool<>(
+            () -> new StreamingFieldSink(this, staticFieldNames, INITIAL_BUFFER_SIZE),
+            sink -> sink.recycle(maxPooledBufferSize));
 
         super.start();
     }
 
+    /**
+     * Checks if a subclass overrides the given method. Subclasses that customize how the
+     * {@link GelfMessage} is built require the (slower) map based field collection.
+     */
+    private boolean isOverridden(final String methodName, final Class<?>... parameterTypes) {
+        for (Class<?> c = getClass(); c != GelfEncoder.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(methodName, parameterTypes);
+                return true;
+            } catch (final NoSuchMethodException e) {
+                // continue with super class
+            }
+        }
+        return false;
+    }
+
     private PatternLayout buildPattern(final String pattern) {
         final PatternLayout patternLayout = new PatternLayout();
         patternLayout.setContext(getContext());
@@ -347,12 +564,31 @@ public class GelfEncoder extends EncoderBase<ILoggingEvent> {
         return patternLayout;
     }
 
+    /**
+     * Creates a cache for serialized fields, if caching is enabled.
+     *
+     * @return the new cache or {@code null} if caching is disabled.
+     */
+    private <K, V> GelfFieldCache<K, V> fieldCache(final String name,
+                                                    final BiFunction<String, Integer, GelfFieldCache<K, V>> factory) {
+        if (fieldCacheSize <= 0) {
+            return null;
+        }
+
+        final GelfFieldCache<K, V> cache = factory.apply(name, fieldCacheSize);
+        fieldCaches.add(cache);
+        return cache;
+    }
+
     private void addBuiltInFieldMappers() {
-        builtInFieldMappers.add(new SimpleFieldMapper<>(loggerNameKey, ILoggingEvent::getLoggerName));
-        builtInFieldMappers.add(new SimpleFieldMapper<>(threadNameKey, ILoggingEvent::getThreadName));
+        builtInFieldMappers.add(new SimpleFieldMapper<>(loggerNameKey, ILoggingEvent::getLoggerName,
+            fieldCache(loggerNameKey, GelfFieldCache::equalityKeyed)));
+        builtInFieldMappers.add(new SimpleFieldMapper<>(threadNameKey, ILoggingEvent::getThreadName,
+            fieldCache(threadNameKey, GelfFieldCache::equalityKeyed)));
 
         if (includeLevelName) {
-            builtInFieldMappers.add(new SimpleFieldMapper<>(levelNameKey, event -> event.getLevel().toString()));
+            builtInFieldMappers.add(new SimpleFieldMapper<>(levelNameKey, event -> event.getLevel().toString(),
+                fieldCache(levelNameKey, GelfFieldCache::equalityKeyed)));
         }
 
         if (includeRawMessage) {
@@ -360,23 +596,25 @@ public class GelfEncoder extends EncoderBase<ILoggingEvent> {
         }
 
         if (includeCallerData) {
-            builtInFieldMappers.add(new CallerDataFieldMapper());
+            builtInFieldMappers.add(new CallerDataFieldMapper(
+                fieldCache("caller_data", GelfFieldCache::equalityKeyed)));
         }
 
         if (includeRootCauseData) {
             builtInFieldMappers.add(new RootExceptionDataFieldMapper());
         }
 
-//        if (includeKeyValues) {
-//            builtInFieldMappers.add(new KeyValueFieldMapper());
-//        }
+        if (includeKeyValues && KeyValueFieldMapper.isSupported()) {
+            builtInFieldMappers.add(new KeyValueFieldMapper());
+        }
 
         if (includeMarker) {
-            builtInFieldMappers.add(new MarkerFieldMapper("marker"));
+            builtInFieldMappers.add(new MarkerFieldMapper("marker",
+                fieldCache("marker", GelfFieldCache::weakIdentityKeyed)));
         }
 
         if (includeMdcData) {
-            builtInFieldMappers.add(new MdcDataFieldMapper());
+            builtInFieldMappers.add(new MdcDataFieldMapper(fieldCache("mdc", GelfFieldCache::weakIdentityKeyed)));
         }
     }
 
@@ -388,23 +626,136 @@ public class GelfEncoder extends EncoderBase<ILoggingEvent> {
 
     @Override
     public byte[] encode(final ILoggingEvent event) {
-        final GelfMessage gelfMessage = buildGelfMessage(
-            event.getTimeStamp(),
-            LevelToSyslogSeverity.convert(event),
-            normalizeShortMessage(buildShortMessage(event)),
-            buildFullMessage(event),
-            collectAdditionalFields(event)
-        );
+        final StreamingFieldSink sink = sinkPool.borrow();
+        try {
+            writeMessage(event, sink);
+            return sink.buffer().toByteArray();
+        } finally {
+            sinkPool.release(sink);
+        }
+    }
+
+    /**
+     * Encodes the event into the given buffer.
+     *
+     * @param event the event to encode.
+     * @param dst the buffer to write the encoded message to - starting at its current position.
+     * @return the number of bytes written.
+     * @throws java.nio.BufferOverflowException if the remaining space of {@code dst} is insufficient.
+     *     The position of {@code dst} is left unchanged in that case.
+     */
+    public int encodeInto(final ILoggingEvent event, final ByteBuffer dst) {
+        final StreamingFieldSink sink = sinkPool.borrow();
+        try {
+            writeMessage(event, sink);
+            final ByteArrayBuffer buf = sink.buffer();
+            dst.put(buf.array(), 0, buf.size());
+            return buf.size();
+        } finally {
+            sinkPool.release(sink);
+        }
+    }
+
+    /**
+     * Encodes the event into a reusable, pooled buffer and passes it to the given consumer. This
+     * avoids allocating a new array for every event.
+     *
+     * @param event the event to encode.
+     * @param consumer the consumer of the encoded message - the passed array is only valid during
+     *     the call.
+     * @throws IOException if thrown by the consumer.
+     */
+    public void encodeInto(final ILoggingEvent event, final EncodedMessageConsumer consumer) throws IOException {
+        final StreamingFieldSink sink = sinkPool.borrow();
+        try {
+            writeMessage(event, sink);
+            final ByteArrayBuffer buf = sink.buffer();
+            consumer.accept(buf.array(), 0, buf.size());
+        } finally {
+            sinkPool.release(sink);
+        }
+    }
+
+    private void writeMessage(final ILoggingEvent event, final StreamingFieldSink sink) {
+        final ByteArrayBuffer buf = sink.buffer();
+        final int start = buf.size();
+        buf.ensureCapacity(start + bufferSizePredictor.predict(event));
+
+        final String shortMessage;
+        final String fullMessage;
+
+        // stack trace of the full message - already escaped (only used for streaming)
+        final Consumer<ByteArrayBuffer> escapedThrowable;
+
+        if (defaultMessageRenderer != null) {
+            final String message = defaultMessageRenderer.message(event);
+            shortMessage = normalizeShortMessage(message);
+            escapedThrowable = streamingFields ? defaultMessageRenderer.escapedThrowable(event) : null;
+            fullMessage = escapedThrowable != null
+                ? defaultMessageRenderer.fullMessageWithoutThrowable(message)
+                : defaultMessageRenderer.fullMessage(event, message);
+        } else {
+            shortMessage = normalizeShortMessage(buildShortMessage(event));
+            fullMessage = buildFullMessage(event);
+            escapedThrowable = null;
+        }
+
+        if (streamingFields) {
+            streamMessage(event, shortMessage, fullMessage, escapedThrowable, sink);
+        } else {
+            final GelfMessage gelfMessage = buildGelfMessage(
+                event.getTimeStamp(),
+                LevelToSyslogSeverity.convert(event),
+                shortMessage,
+                fullMessage,
+                collectAdditionalFields(event)
+            );
+
+            // The additional fields already contain the static fields - the header can't be used
+            gelfMessage.writeTo(buf);
+        }
 
-        final var sb = gelfMessage.toJSON();
+        bufferSizePredictor.record(event, buf.size() - start);
+
+        if (maxMessageSize > 0) {
+            MessageTruncator.truncate(buf, start, maxMessageSize);
+        }
 
         if (appendNewline) {
-            sb.append(System.lineSeparator());
+            buf.writeAscii(System.lineSeparator());
         }
+    }
 
-        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    /**
+     * Writes the message without building a {@link GelfMessage} - additional fields are directly
+     * streamed into the output by the field mappers.
+     */
+    private void streamMessage(final ILoggingEvent event, final String shortMessage, final String fullMessage,
+                               final Consumer<ByteArrayBuffer> escapedThrowable,
+                               final StreamingFieldSink sink) {
+        try (var jsonEncoder = new Utf8JsonEncoder(sink.buffer(), messageHeader)) {
+            GelfMessage.writeCoreFields(jsonEncoder,
+                shortMessage,
+                fullMessage,
+                escapedThrowable,
+                event.getTimeStamp(),
+                LevelToSyslogSeverity.convert(event));
+
+            sink.begin(jsonEncoder);
+            fieldMapperPlan.execute(event, sink);
+        }
     }
 
+    /**
+     * Builds the GELF message.
+     *
+     * @param timestamp the timestamp of the event
+     * @param logLevel the syslog severity of the event
+     * @param shortMessage the short message
+     * @param fullMessage the full message
+     * @param additionalFields the additional fields, collected by {@link #collectAdditionalFields(ILoggingEvent)}
+     * @return the GELF message
+     */
     protected GelfMessage buildGelfMessage(final long timestamp, final int logLevel, final String shortMessage,
                                            final String fullMessage, final Map<String, Object> additionalFields) {
         return new GelfMessage(originHost, shortMessage, fullMessage, timestamp, logLevel, additionalFields);
@@ -0,0 +1,216 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded, lock-free cache - typically from a value of a log event (logger name, MDC map, marker, ...)
+ * to its {@link GelfFieldFragment serialized fields}.
+ * <p>
+ * The cache is a two-way set associative array: each key may only be stored in one of two slots
+ * (determined by its hash), a new entry evicts an old one if both slots are occupied. Lookups never
+ * block and the memory footprint is bounded by the capacity.
+ *
+ * @param <K> the type of keys.
+ * @param <V> the type of cached values.
+ */
+public final class GelfFieldCache<K, V> {
+
+    private static final int PROBES = 2;
+
+    private final String name;
+    private final AtomicReferenceArray<Entry<V>> slots;
+    private final int mask;
+    private final boolean weakIdentityKeys;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private GelfFieldCache(final String name, final int capacity, final boolean weakIdentityKeys) {
+        final int slotCount = capacity <= PROBES ? PROBES : Integer.highestOneBit(capacity - 1) << 1;
+        this.name = name;
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.mask = slotCount - 1;
+        this.weakIdentityKeys = weakIdentityKeys;
+    }
+
+    /**
+     * Creates a cache that compares keys by {@link Object#equals(Object)} and holds them strongly.
+     * Suitable for immutable keys like strings.
+     *
+     * @param name the name of the cache (for statistics).
+     * @param capacity the maximum number of entries - rounded up to the next power of two (minimum 2).
+     * @param <K> the type of keys.
+     * @param <V> the type of cached values.
+     * @return the new cache.
+     */
+    public static <K, V> GelfFieldCache<K, V> equalityKeyed(final String name, final int capacity) {
+        return new GelfFieldCache<>(name, capacity, false);
+    }
+
+    /**
+     * Creates a cache that compares keys by identity and only holds weak references to them.
+     * Suitable for objects that are not modified while they are in use (like the MDC map of an event).
+     *
+     * @param name the name of the cache (for statistics).
+     * @param capacity the maximum number of entries - rounded up to the next power of two (minimum 2).
+     * @param <K> the type of keys.
+     * @param <V> the type of cached values.
+     * @return the new cache.
+     */
+    public static <K, V> GelfFieldCache<K, V> weakIdentityKeyed(final String name, final int capacity) {
+        return new GelfFieldCache<>(name, capacity, true);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The number of slots of this cache.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the cached value for the given key or computes (and caches) it.
+     *
+     * @param key the key.
+     * @param loader computes the value for a key that isn't cached.
+     * @return the cached or computed value.
+     */
+    public V computeIfAbsent(final K key, final Function<? super K, ? extends V> loader) {
+        final V cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final V value = Objects.requireNonNull(loader.apply(key), "loader must not return null");
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Returns the cached value for the given key.
+     *
+     * @param key the key.
+     * @return the cached value or {@code null} if the key isn't cached.
+     */
+    public V get(final K key) {
+        final int hash = hash(key);
+        for (int i = 0; i < PROBES; i++) {
+            final Entry<V> entry = slots.get((hash + i) & mask);
+            if (entry != null && entry.hash == hash && matches(entry, key)) {
+                hits.increment();
+                return entry.value;
+            }
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Adds a value to the cache - possibly evicting another one.
+     *
+     * @param key the key.
+     * @param value the value.
+     */
+    public void put(final K key, final V value) {
+        final int hash = hash(key);
+        final Entry<V> entry = new Entry<>(weakIdentityKeys ? new WeakReference<>(key) : key, hash, value);
+
+        for (int i = 0; i < PROBES; i++) {
+            final int idx = (hash + i) & mask;
+            final Entry<V> existing = slots.get(idx);
+            if (existing == null || isStale(existing)) {
+                slots.set(idx, entry);
+                return;
+            }
+        }
+
+        // both slots occupied - evict one of them, chosen by the upper bits of the hash
+        slots.set((hash + (hash >>> 31)) & mask, entry);
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+
+    @SuppressWarnings("checkstyle:magicnumber")
+    private int hash(final K key) {
+        final int h = weakIdentityKeys ? System.identityHashCode(key) : key.hashCode();
+        return h ^ h >>> 16;
+    }
+
+    private boolean matches(final Entry<V> entry, final K key) {
+        return weakIdentityKeys
+            ? ((WeakReference<?>) entry.key).get() == key
+            : entry.key.equals(key);
+    }
+
+    private boolean isStale(final Entry<V> entry) {
+        return weakIdentityKeys && ((WeakReference<?>) entry.key).get() == null;
+    }
+
+    @Override
+    public String toString() {
+        return "GelfFieldCache{name=" + name + ", capacity=" + getCapacity()
+            + ", hits=" + getHits() + ", misses=" + getMisses() + '}';
+    }
+
+    private static final class Entry<V> {
+
+        /**
+         * The key or a weak reference to it.
+         */
+        private final Object key;
+        private final int hash;
+        private final V value;
+
+        Entry(final Object key, final int hash, final V value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Immutable group of additional fields that has been validated and serialized once - to be added
+ * to any number of messages via {@link GelfFieldSink#accept(GelfFieldFragment)} without repeating
+ * the validation, number detection and escaping.
+ * <p>
+ * Fragments are created by {@link GelfFieldSink#serialize(Consumer)} and are usually kept in a
+ * {@link GelfFieldCache}.
+ */
+public final class GelfFieldFragment {
+
+    private final String[] fieldNames;
+    private final Object[] values;
+
+    /**
+     * Names of the fields contained in {@link #json} - {@code null} values are not serialized.
+     */
+    private final String[] serializedFieldNames;
+
+    /**
+     * The serialized fields (comma separated, without surrounding braces) - {@code null} if the
+     * fields have to be added one by one (e.g. because a field name is invalid and a warning has
+     * to be issued whenever the fragment is used).
+     */
+    private final byte[] json;
+
+    /**
+     * The {@link GelfEncoder#isNumbersAsString()} setting used for {@link #json}.
+     */
+    private final boolean numbersAsString;
+
+    GelfFieldFragment(final String[] fieldNames, final Object[] values, final String[] serializedFieldNames,
+                      final byte[] json, final boolean numbersAsString) {
+        this.fieldNames = fieldNames;
+        this.values = values;
+        this.serializedFieldNames = serializedFieldNames;
+        this.json = json;
+        this.numbersAsString = numbersAsString;
+    }
+
+    /**
+     * Collects the fields passed to the sink given to {@code fields} - without serializing them.
+     *
+     * @param fields the function that adds the fields to a sink.
+     * @return the unserialized fragment.
+     */
+    static GelfFieldFragment collect(final Consumer<GelfFieldSink> fields) {
+        final List<String> names = new ArrayList<>();
+        final List<Object> values = new ArrayList<>();
+        fields.accept((fieldName, value) -> {
+            names.add(fieldName);
+            values.add(value);
+        });
+        return new GelfFieldFragment(names.toArray(new String[0]), values.toArray(), null, null, false);
+    }
+
+    /**
+     * The number of fields (including fields with {@code null} value) this fragment was created from.
+     *
+     * @return the number of fields.
+     */
+    public int getFieldCount() {
+        return fieldNames.length;
+    }
+
+    String[] fieldNames() {
+        return fieldNames;
+    }
+
+    Object[] values() {
+        return values;
+    }
+
+    String[] serializedFieldNames() {
+        return serializedFieldNames;
+    }
+
+    @SuppressWarnings("PMD.MethodReturnsInternalArray")
+    byte[] json() {
+        return json;
+    }
+
+    /**
+     * Checks if the serialized form of this fragment can be used for the given setting.
+     *
+     * @param numbersAsStringSetting the {@link GelfEncoder#isNumbersAsString()} setting of the target.
+     * @return {@code true} if the serialized form can be used.
+     */
+    boolean isSerializedFor(final boolean numbersAsStringSetting) {
+        return json != null && numbersAsString == numbersAsStringSetting;
+    }
+
+    /**
+     * Adds the fields of this fragment one by one to the given sink.
+     *
+     * @param sink the sink to add the fields to.
+     */
+    void replay(final GelfFieldSink sink) {
+        for (int i = 0; i < fieldNames.length; i++) {
+            sink.accept(fieldNames[i], values[i]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "GelfFieldFragment" + List.of(fieldNames);
+    }
+
+}
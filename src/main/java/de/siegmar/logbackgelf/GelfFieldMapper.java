@@ -36,4 +36,18 @@ public interface GelfFieldMapper<T> {
      */
     void mapField(ILoggingEvent event, BiConsumer<String, T> valueHandler);
 
+    /**
+     * Map a field (one or more) from {@link ILoggingEvent} directly into the GELF message.
+     * <p>
+     * The default implementation adapts the sink to {@link #mapField(ILoggingEvent, BiConsumer)}.
+     * Implementations may override this method to avoid the adapter - and to add primitive values
+     * without boxing them (see {@link GelfFieldSink#acceptLong(String, long)} and its siblings).
+     *
+     * @param event the source log event
+     * @param sink the sink of the field ({@link String} name and value)
+     */
+    default void streamField(final ILoggingEvent event, final GelfFieldSink sink) {
+        mapField(event, sink::accept);
+    }
+
 }
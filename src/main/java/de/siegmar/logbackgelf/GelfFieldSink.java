@@ -0,0 +1,107 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Sink for additional fields of a GELF message. Fields passed to the sink are validated and
+ * directly written to the encoded message.
+ *
+ * @see GelfFieldMapper#streamField(ch.qos.logback.classic.spi.ILoggingEvent, GelfFieldSink)
+ */
+@FunctionalInterface
+public interface GelfFieldSink {
+
+    /**
+     * Adds a field to the GELF message. Invalid or duplicate field names are rejected with a
+     * warning, {@code null} values are ignored.
+     *
+     * @param fieldName the name of the field (without the leading underscore)
+     * @param value the value of the field
+     */
+    void accept(String fieldName, Object value);
+
+    /**
+     * Adds a numeric field to the GELF message - without boxing the value.
+     *
+     * @param fieldName the name of the field (without the leading underscore)
+     * @param value the value of the field
+     */
+    default void acceptLong(final String fieldName, final long value) {
+        accept(fieldName, value);
+    }
+
+    /**
+     * Adds a numeric field to the GELF message - without boxing the value. As JSON doesn't
+     * support them, NaN and infinite values are added as string.
+     *
+     * @param fieldName the name of the field (without the leading underscore)
+     * @param value the value of the field
+     */
+    default void acceptDouble(final String fieldName, final double value) {
+        accept(fieldName, value);
+    }
+
+    /**
+     * Adds a boolean field to the GELF message - without boxing the value. GELF only supports
+     * string and numeric fields, so the value is added as string ({@code "true"} or {@code "false"}).
+     *
+     * @param fieldName the name of the field (without the leading underscore)
+     * @param value the value of the field
+     */
+    default void acceptBoolean(final String fieldName, final boolean value) {
+        accept(fieldName, value);
+    }
+
+    /**
+     * Adds a field with an UTF-8 encoded string value to the GELF message - like
+     * {@code accept(fieldName, new String(value, UTF_8))} but without decoding (ASCII) values.
+     *
+     * @param fieldName the name of the field (without the leading underscore)
+     * @param value the UTF-8 encoded value of the field
+     */
+    default void acceptBytes(final String fieldName, final byte[] value) {
+        accept(fieldName, value != null ? new String(value, StandardCharsets.UTF_8) : null);
+    }
+
+    /**
+     * Adds all fields of a fragment to the GELF message. Sinks that write the encoded message
+     * directly copy the serialized fragment - other sinks add the fields one by one.
+     *
+     * @param fragment the fragment to add, as created by {@link #serialize(Consumer)}.
+     */
+    default void accept(final GelfFieldFragment fragment) {
+        fragment.replay(this);
+    }
+
+    /**
+     * Serializes the fields added by {@code fields} to a fragment that can be added to any number
+     * of messages. The fields are not added to the current message.
+     *
+     * @param fields the function that adds the fields to the given sink.
+     * @return the fragment.
+     */
+    default GelfFieldFragment serialize(final Consumer<GelfFieldSink> fields) {
+        return GelfFieldFragment.collect(fields);
+    }
+
+}
@@ -27,11 +27,13 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.Path;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
@@ -47,6 +49,10 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
     private static final int DEFAULT_REQUEST_TIMEOUT = 5_000;
     private static final int DEFAULT_MAX_RETRIES = 2;
     private static final int DEFAULT_RETRY_DELAY = 3_000;
+    private static final int COMPRESS_BUFFER_SIZE = 512;
+    private static final int DEFAULT_SPILL_SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final long DEFAULT_SPILL_MAX_SIZE = 256L * 1024 * 1024;
+    private static final int DEFAULT_SHUTDOWN_TIMEOUT = 5_000;
 
     /**
      * The URI to send messages to.
@@ -82,6 +88,48 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
      */
     private CompressionMethod compressionMethod = CompressionMethod.GZIP;
 
+    /**
+     * Directory for spilling messages to disk that couldn't be sent (after all retries). Spilled
+     * messages are replayed in order as soon as the server is available again. If not set (default),
+     * such messages are dropped.
+     */
+    private String spillDirectory;
+
+    /**
+     * Size (in bytes) of a spill segment file. Default: {@value DEFAULT_SPILL_SEGMENT_SIZE} bytes.
+     */
+    private int spillSegmentSize = DEFAULT_SPILL_SEGMENT_SIZE;
+
+    /**
+     * Maximum total size (in bytes) of all spill segment files - the oldest segment is evicted if
+     * exceeded. Default: {@value DEFAULT_SPILL_MAX_SIZE} bytes.
+     */
+    private long spillMaxSize = DEFAULT_SPILL_MAX_SIZE;
+
+    /**
+     * If true, all messages are written to the spill directory first and sent by the background
+     * thread - messages that haven't been sent survive a restart of the application. Default: false.
+     */
+    private boolean spillJournal;
+
+    /**
+     * Maximum number of messages per second replayed from spill segment files that have been
+     * recovered on start. A value of 0 disables the limit. Default: 0.
+     */
+    private int spillReplayRate;
+
+    /**
+     * If true, new messages are sent while recovered messages are still replayed. Otherwise, new
+     * messages are queued behind them. Default: false.
+     */
+    private boolean spillReplayInterleaved;
+
+    /**
+     * Maximum time (in milliseconds) to replay spilled messages (and retry failed ones) on stop.
+     * Default: {@value DEFAULT_SHUTDOWN_TIMEOUT} milliseconds.
+     */
+    private int shutdownTimeout = DEFAULT_SHUTDOWN_TIMEOUT;
+
     /**
      * The HTTP client to use for sending messages.
      */
@@ -94,6 +142,20 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
 
     private Compressor compressor;
 
+    private StripedPool<ByteArrayBuffer> compressBufferPool;
+
+    private SpillQueue spillQueue;
+
+    /**
+     * Time (see {@link System#nanoTime()}) until failed messages are retried after the appender
+     * has been stopped. Only valid if {@link #stopping} is set.
+     */
+    private volatile long shutdownDeadline;
+
+    private volatile boolean stopping;
+
+    private final EncodedMessageConsumer messageSender = this::sendMessage;
+
     public String getUri() {
         return uri.toString();
     }
@@ -150,6 +212,71 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
         this.compressionMethod = compressionMethod;
     }
 
+    public String getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    public void setSpillDirectory(final String spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    public int getSpillSegmentSize() {
+        return spillSegmentSize;
+    }
+
+    public void setSpillSegmentSize(final int spillSegmentSize) {
+        this.spillSegmentSize = spillSegmentSize;
+    }
+
+    public long getSpillMaxSize() {
+        return spillMaxSize;
+    }
+
+    public void setSpillMaxSize(final long spillMaxSize) {
+        this.spillMaxSize = spillMaxSize;
+    }
+
+    public boolean isSpillJournal() {
+        return spillJournal;
+    }
+
+    public void setSpillJournal(final boolean spillJournal) {
+        this.spillJournal = spillJournal;
+    }
+
+    public int getSpillReplayRate() {
+        return spillReplayRate;
+    }
+
+    public void setSpillReplayRate(final int spillReplayRate) {
+        this.spillReplayRate = spillReplayRate;
+    }
+
+    public boolean isSpillReplayInterleaved() {
+        return spillReplayInterleaved;
+    }
+
+    public void setSpillReplayInterleaved(final boolean spillReplayInterleaved) {
+        this.spillReplayInterleaved = spillReplayInterleaved;
+    }
+
+    /**
+     * The number of spilled messages waiting to be replayed.
+     *
+     * @return the number of spilled messages.
+     */
+    public int getSpilledMessages() {
+        return spillQueue != null ? spillQueue.size() : 0;
+    }
+
+    public int getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public void setShutdownTimeout(final int shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
     public HttpClient getHttpClient() {
         return httpClient;
     }
@@ -192,7 +319,24 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
         }
 
         compressor = compressionMethod.getCompressor();
+        compressBufferPool = StripedPool.ofBuffers(COMPRESS_BUFFER_SIZE, encoder.getMaxPooledBufferSize());
 
+        if (spillDirectory != null) {
+            final SpillQueue queue = new SpillQueue(Path.of(spillDirectory), spillSegmentSize, spillMaxSize,
+                retryDelay, this::replayPackage, this);
+            queue.setReplay(spillReplayRate, spillReplayInterleaved);
+            try {
+                queue.start();
+            } catch (final IOException e) {
+                addError("Couldn't open spill directory " + spillDirectory, e);
+                return;
+            }
+            spillQueue = queue;
+        } else if (spillJournal) {
+            addWarn("spillJournal requires a spillDirectory - ignoring it");
+        }
+
+        stopping = false;
         super.start();
     }
 
@@ -214,18 +358,66 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
     @Override
     protected void append(final ILoggingEvent event) {
         try {
-            final HttpRequest request = buildRequest(buildPackage(event));
-            RetryUtil.retry(() -> sendRequest(request), this::isStarted, maxRetries, retryDelay);
+            encoder.encodeInto(event, messageSender);
         } catch (final Exception e) {
             addError(String.format("Error sending message via %s", getUri()), e);
         }
     }
 
-    private byte[] buildPackage(final ILoggingEvent event) {
-        return compressor.compress(encoder.encode(event));
+    private void sendMessage(final byte[] message, final int offset, final int length) throws IOException {
+        if (compressionMethod == CompressionMethod.NONE) {
+            sendPackage(message, offset, length);
+            return;
+        }
+
+        final ByteArrayBuffer compressed = compressBufferPool.borrow();
+        try {
+            compressor.compress(message, offset, length, compressed);
+            sendPackage(compressed.array(), 0, compressed.size());
+        } finally {
+            compressBufferPool.release(compressed);
+        }
     }
 
-    private HttpRequest buildRequest(final byte[] data) {
+    private void sendPackage(final byte[] data, final int offset, final int length) throws IOException {
+        if (spillQueue != null && (spillJournal || !spillQueue.isEmpty())) {
+            // keep the order - packages are sent after the spilled ones
+            spillQueue.append(data, offset, length);
+            return;
+        }
+
+        // The request (and its body) is sent synchronously, so it's safe to pass a pooled array
+        final HttpRequest request = buildRequest(data, offset, length);
+        try {
+            RetryUtil.retry(() -> sendRequest(request), this::canRetry, maxRetries, retryDelay);
+        } catch (final IllegalStateException e) {
+            if (spillQueue == null) {
+                throw e;
+            }
+            addWarn(String.format("Error sending message via %s - spilling messages to %s",
+                getUri(), spillDirectory), e);
+            spillQueue.append(data, offset, length);
+        }
+    }
+
+    /**
+     * Replays a spilled (and already compressed) package - called by the drainer thread of the
+     * spill queue, which retries on its own.
+     *
+     * @param data array containing the package.
+     * @param offset offset of the package within the array.
+     * @param length length of the package.
+     */
+    private void replayPackage(final byte[] data, final int offset, final int length) throws IOException {
+        try {
+            sendRequest(buildRequest(data, offset, length));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private HttpRequest buildRequest(final byte[] data, final int offset, final int length) {
         final HttpRequest.Builder reqB = HttpRequest.newBuilder(uri)
             .header("Content-Type", "application/json")
             .timeout(Duration.ofMillis(requestTimeout));
@@ -234,7 +426,7 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
             .ifPresent(encoding -> reqB.header("Content-Encoding", encoding));
 
         return reqB
-            .POST(HttpRequest.BodyPublishers.ofByteArray(data))
+            .POST(HttpRequest.BodyPublishers.ofByteArray(data, offset, length))
             .build();
     }
 
@@ -276,11 +468,31 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
         return statusCode;
     }
 
+    /**
+     * Checks if failed messages may be retried - while the appender is started and after it has
+     * been stopped until the shutdown timeout has elapsed.
+     *
+     * @return {@code true} if failed messages may be retried.
+     */
+    private boolean canRetry() {
+        return isStarted() || stopping && shutdownDeadline - System.nanoTime() > 0;
+    }
+
+    /**
+     * Stops accepting events, replays spilled messages until the shutdown timeout has elapsed and
+     * stops the encoder.
+     */
     @Override
     public void stop() {
-        encoder.stop();
-
+        shutdownDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeout);
+        stopping = true;
         super.stop();
+
+        if (spillQueue != null) {
+            spillQueue.stop(shutdownDeadline);
+        }
+
+        encoder.stop();
     }
 
 }
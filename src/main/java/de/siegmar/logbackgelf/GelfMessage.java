@@ -23,6 +23,7 @@ import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * Class for GELF 1.1 format representation.
@@ -32,6 +33,16 @@ public class GelfMessage {
     private static final String VERSION = "1.1";
     private static final int INITIAL_JSON_SIZE = 256;
 
+    /**
+     * Estimated size of an additional field (name and value) - used to pre-size the JSON output.
+     */
+    private static final int ADDITIONAL_FIELD_SIZE = 32;
+
+    /**
+     * Upper bound of the pre-sized JSON output - huge messages grow beyond as needed.
+     */
+    private static final int MAX_INITIAL_JSON_SIZE = 1 << 20;
+
     private final String host;
     private final String shortMessage;
     private final String fullMessage;
@@ -75,7 +86,7 @@ public class GelfMessage {
     }
 
     public StringBuilder toJSON() {
-        final StringBuilder sb = new StringBuilder(INITIAL_JSON_SIZE);
+        final StringBuilder sb = new StringBuilder(estimateJsonSize());
 
         try (var jsonEncoder = new SimpleJsonEncoder(sb)) {
             jsonEncoder
@@ -98,6 +109,103 @@ public class GelfMessage {
         return sb;
     }
 
+    /**
+     * Estimates the size of the JSON representation - to size the output once instead of growing
+     * it several times for messages with a stack trace or many additional fields.
+     */
+    private int estimateJsonSize() {
+        final long size = INITIAL_JSON_SIZE + (long) shortMessage.length()
+            + (fullMessage != null ? fullMessage.length() : 0)
+            + (long) additionalFields.size() * ADDITIONAL_FIELD_SIZE;
+        return (int) Math.min(size, MAX_INITIAL_JSON_SIZE);
+    }
+
+    /**
+     * Writes the UTF-8 encoded JSON representation of this message to the given buffer.
+     *
+     * @param buf the buffer to write to.
+     */
+    void writeTo(final ByteArrayBuffer buf) {
+        try (var jsonEncoder = new Utf8JsonEncoder(buf)) {
+            jsonEncoder
+                .appendToJSON("version", VERSION)
+                .appendToJSON("host", host);
+
+            writeFields(jsonEncoder);
+        }
+    }
+
+    /**
+     * Writes the UTF-8 encoded JSON representation of this message to the given buffer, using a
+     * header that has been built by {@link #buildHeader(String, Map)} for the host of this message.
+     *
+     * @param buf the buffer to write to.
+     * @param header the pre-serialized header (version, host and static fields).
+     */
+    void writeTo(final ByteArrayBuffer buf, final byte[] header) {
+        try (var jsonEncoder = new Utf8JsonEncoder(buf, header)) {
+            writeFields(jsonEncoder);
+        }
+    }
+
+    private void writeFields(final Utf8JsonEncoder jsonEncoder) {
+        writeCoreFields(jsonEncoder, shortMessage, fullMessage, timestamp, level);
+
+        additionalFields
+            .forEach((key, value) -> jsonEncoder.appendToJSON('_', key, value));
+    }
+
+    /**
+     * Writes the mandatory (non-additional) fields of a message - except version and host that
+     * are part of the header.
+     */
+    static void writeCoreFields(final Utf8JsonEncoder jsonEncoder, final String shortMessage,
+                                final String fullMessage, final long timestamp, final int level) {
+        writeCoreFields(jsonEncoder, shortMessage, fullMessage, null, timestamp, level);
+    }
+
+    /**
+     * Writes the mandatory (non-additional) fields of a message - except version and host that
+     * are part of the header. The full message is followed by a suffix (the stack trace) written
+     * escaped by {@code escapedFullMessageSuffix}, if given.
+     */
+    static void writeCoreFields(final Utf8JsonEncoder jsonEncoder, final String shortMessage,
+                                final String fullMessage, final Consumer<ByteArrayBuffer> escapedFullMessageSuffix,
+                                final long timestamp, final int level) {
+        jsonEncoder.appendToJSON("short_message", shortMessage);
+
+        if (escapedFullMessageSuffix != null) {
+            jsonEncoder.appendToJSON("full_message", fullMessage, escapedFullMessageSuffix);
+        } else if (fullMessage != null && !fullMessage.isEmpty()) {
+            jsonEncoder.appendToJSON("full_message", fullMessage);
+        }
+
+        jsonEncoder
+            .appendTimestamp("timestamp", timestamp)
+            .appendToJSONUnquoted("level", level);
+    }
+
+    /**
+     * Builds the constant part of all messages of one host: the opening of the JSON object,
+     * version, host and the given static fields - already escaped and UTF-8 encoded.
+     *
+     * @param host the origin host.
+     * @param staticFields the static (additional) fields.
+     * @return the pre-serialized header.
+     */
+    static byte[] buildHeader(final String host, final Map<String, Object> staticFields) {
+        final ByteArrayBuffer buf = new ByteArrayBuffer(INITIAL_JSON_SIZE);
+        final var jsonEncoder = new Utf8JsonEncoder(buf)
+            .appendToJSON("version", VERSION)
+            .appendToJSON("host", Objects.requireNonNull(host, "host must not be null"));
+
+        staticFields
+            .forEach((key, value) -> jsonEncoder.appendToJSON('_', key, value));
+
+        // jsonEncoder intentionally not closed - the header is continued by writeTo()
+        return buf.toByteArray();
+    }
+
     @SuppressWarnings("checkstyle:MagicNumber")
     private static String timestampToGelfNotation(final long timestamp) {
         return new BigDecimal(timestamp).movePointLeft(3).toPlainString();
@@ -19,6 +19,9 @@
 
 package de.siegmar.logbackgelf;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 import javax.net.SocketFactory;
 
 import de.siegmar.logbackgelf.pool.SimpleObjectPool;
@@ -33,6 +36,8 @@ public class GelfTcpAppender extends AbstractGelfAppender {
     private static final int DEFAULT_POOL_SIZE = 2;
     private static final int DEFAULT_POOL_MAX_WAIT_TIME = 5_000;
     private static final int DEFAULT_POOL_MAX_IDLE_TIME = -1;
+    private static final int DEFAULT_SPILL_SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final long DEFAULT_SPILL_MAX_SIZE = 256L * 1024 * 1024;
 
     /**
      * Maximum time (in milliseconds) to wait for establishing a connection. A value of 0 disables
@@ -82,8 +87,46 @@ public class GelfTcpAppender extends AbstractGelfAppender {
      */
     private int poolMaxIdleTime = DEFAULT_POOL_MAX_IDLE_TIME;
 
+    /**
+     * Directory for spilling messages to disk that couldn't be sent (after all retries). Spilled
+     * messages are replayed in order as soon as the server is available again. If not set (default),
+     * such messages are dropped.
+     */
+    private String spillDirectory;
+
+    /**
+     * Size (in bytes) of a spill segment file. Default: {@value DEFAULT_SPILL_SEGMENT_SIZE} bytes.
+     */
+    private int spillSegmentSize = DEFAULT_SPILL_SEGMENT_SIZE;
+
+    /**
+     * Maximum total size (in bytes) of all spill segment files - the oldest segment is evicted if
+     * exceeded. Default: {@value DEFAULT_SPILL_MAX_SIZE} bytes.
+     */
+    private long spillMaxSize = DEFAULT_SPILL_MAX_SIZE;
+
+    /**
+     * If true, all messages are written to the spill directory first and sent by the background
+     * thread - messages that haven't been sent survive a restart of the application. Default: false.
+     */
+    private boolean spillJournal;
+
+    /**
+     * Maximum number of messages per second replayed from spill segment files that have been
+     * recovered on start. A value of 0 disables the limit. Default: 0.
+     */
+    private int spillReplayRate;
+
+    /**
+     * If true, new messages are sent while recovered messages are still replayed. Otherwise, new
+     * messages are queued behind them. Default: false.
+     */
+    private boolean spillReplayInterleaved;
+
     private SimpleObjectPool<TcpConnection> connectionPool;
 
+    private SpillQueue spillQueue;
+
     public int getConnectTimeout() {
         return connectTimeout;
     }
@@ -148,42 +191,169 @@ public class GelfTcpAppender extends AbstractGelfAppender {
         this.poolMaxIdleTime = poolMaxIdleTime;
     }
 
+    public String getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    public void setSpillDirectory(final String spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    public int getSpillSegmentSize() {
+        return spillSegmentSize;
+    }
+
+    public void setSpillSegmentSize(final int spillSegmentSize) {
+        this.spillSegmentSize = spillSegmentSize;
+    }
+
+    public long getSpillMaxSize() {
+        return spillMaxSize;
+    }
+
+    public void setSpillMaxSize(final long spillMaxSize) {
+        this.spillMaxSize = spillMaxSize;
+    }
+
+    public boolean isSpillJournal() {
+        return spillJournal;
+    }
+
+    public void setSpillJournal(final boolean spillJournal) {
+        this.spillJournal = spillJournal;
+    }
+
+    public int getSpillReplayRate() {
+        return spillReplayRate;
+    }
+
+    public void setSpillReplayRate(final int spillReplayRate) {
+        this.spillReplayRate = spillReplayRate;
+    }
+
+    public boolean isSpillReplayInterleaved() {
+        return spillReplayInterleaved;
+    }
+
+    public void setSpillReplayInterleaved(final boolean spillReplayInterleaved) {
+        this.spillReplayInterleaved = spillReplayInterleaved;
+    }
+
+    /**
+     * The number of spilled messages waiting to be replayed.
+     *
+     * @return the number of spilled messages.
+     */
+    public int getSpilledMessages() {
+        return spillQueue != null ? spillQueue.size() : 0;
+    }
+
     @Override
-    protected void startAppender() {
+    protected void startAppender() throws IOException {
         final AddressResolver addressResolver = new AddressResolver(getGraylogHost());
 
         connectionPool = new SimpleObjectPool<>(() -> new TcpConnection(initSocketFactory(),
             addressResolver, getGraylogPort(), connectTimeout, socketTimeout),
             poolSize, poolMaxWaitTime, reconnectInterval, poolMaxIdleTime);
+
+        if (spillDirectory != null) {
+            final SpillQueue queue = new SpillQueue(Path.of(spillDirectory), spillSegmentSize, spillMaxSize,
+                retryDelay, this::replayMessage, this);
+            queue.setReplay(spillReplayRate, spillReplayInterleaved);
+            try {
+                queue.start();
+            } catch (final IOException e) {
+                connectionPool.close();
+                throw new IOException("Couldn't open spill directory " + spillDirectory, e);
+            }
+            spillQueue = queue;
+        } else if (spillJournal) {
+            addWarn("spillJournal requires a spillDirectory - ignoring it");
+        }
     }
 
     protected SocketFactory initSocketFactory() {
         return SocketFactory.getDefault();
     }
 
-    @SuppressWarnings("checkstyle:IllegalCatch")
     @Override
     protected void appendMessage(final byte[] messageToSend) {
+        appendMessage(messageToSend, 0, messageToSend.length);
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    @Override
+    protected void appendMessage(final byte[] messageToSend, final int offset, final int length) {
+        if (spillQueue != null && (spillJournal || !spillQueue.isEmpty())) {
+            // keep the order - messages are sent after the spilled ones
+            spill(messageToSend, offset, length);
+            return;
+        }
+
         try {
-            RetryUtil.retry(() -> sendMessage(messageToSend), this::isStarted, maxRetries, retryDelay);
+            RetryUtil.retry(() -> sendMessage(messageToSend, offset, length), this::canRetry, maxRetries, retryDelay);
         } catch (final Exception e) {
-            addError(String.format("Error sending message via tcp://%s:%s",
-                getGraylogHost(), getGraylogPort()), e);
+            if (spillQueue != null) {
+                addWarn(String.format("Error sending message via tcp://%s:%s - spilling messages to %s",
+                    getGraylogHost(), getGraylogPort(), spillDirectory), e);
+                spill(messageToSend, offset, length);
+            } else {
+                addError(String.format("Error sending message via tcp://%s:%s",
+                    getGraylogHost(), getGraylogPort()), e);
+            }
+        }
+    }
+
+    private void spill(final byte[] messageToSend, final int offset, final int length) {
+        try {
+            spillQueue.append(messageToSend, offset, length);
+        } catch (final IOException e) {
+            addError("Couldn't spill message to " + spillDirectory, e);
         }
     }
 
     /**
      * Send message to socket's output stream.
      *
-     * @param messageToSend message to send.
+     * @param messageToSend array containing the message to send.
+     * @param offset offset of the message within the array.
+     * @param length length of the message.
      */
-    private Void sendMessage(final byte[] messageToSend) throws Exception {
-        connectionPool.execute(tcpConnection -> tcpConnection.write(messageToSend));
+    private Void sendMessage(final byte[] messageToSend, final int offset, final int length) throws Exception {
+        connectionPool.execute(tcpConnection -> tcpConnection.write(messageToSend, offset, length));
         return null;
     }
 
+    /**
+     * Replays a spilled message - called by the drainer thread of the spill queue, which retries
+     * on its own.
+     *
+     * @param messageToSend array containing the message to send.
+     * @param offset offset of the message within the array.
+     * @param length length of the message.
+     */
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private void replayMessage(final byte[] messageToSend, final int offset, final int length) throws IOException {
+        try {
+            sendMessage(messageToSend, offset, length);
+        } catch (final IOException | RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    protected int getFlushParallelism() {
+        return poolSize;
+    }
+
     @Override
     protected void close() {
+        // the asynchronous sender has been stopped - messages it couldn't send have been spilled by now
+        if (spillQueue != null) {
+            spillQueue.stop(getShutdownDeadline());
+        }
         connectionPool.close();
     }
 
@@ -31,6 +31,19 @@ import de.siegmar.logbackgelf.compressor.Compressor;
 
 public class GelfUdpAppender extends AbstractGelfAppender {
 
+    private static final int COMPRESS_BUFFER_SIZE = 512;
+
+    /**
+     * Maximum number of attempts to truncate a message until it fits into the maximum number of chunks.
+     */
+    private static final int MAX_TRUNCATION_ATTEMPTS = 3;
+
+    /**
+     * Safety margin used when estimating the uncompressed size of a message that fits into the maximum
+     * number of chunks.
+     */
+    private static final double TRUNCATION_MARGIN = 0.9;
+
     /**
      * Maximum size of GELF chunks in bytes. Default chunk size is 508 - this prevents
      * IP packet fragmentation. This is also the recommended minimum.
@@ -52,6 +65,8 @@ public class GelfUdpAppender extends AbstractGelfAppender {
 
     private Compressor compressor;
 
+    private StripedPool<ByteArrayBuffer> compressBufferPool;
+
     public Integer getMaxChunkSize() {
         return maxChunkSize;
     }
@@ -82,16 +97,66 @@ public class GelfUdpAppender extends AbstractGelfAppender {
         chunker = new GelfUdpChunker(messageIdSupplier, maxChunkSize);
         addressResolver = new AddressResolver(getGraylogHost());
         compressor = compressionMethod.getCompressor();
+        compressBufferPool = StripedPool.ofBuffers(COMPRESS_BUFFER_SIZE, getEncoder().getMaxPooledBufferSize());
     }
 
     @Override
     protected void appendMessage(final byte[] binMessage) throws IOException {
-        final byte[] messageToSend = compressor.compress(binMessage);
+        appendMessage(binMessage, 0, binMessage.length);
+    }
+
+    @Override
+    protected void appendMessage(final byte[] binMessage, final int offset, final int length) throws IOException {
+        if (compressionMethod == CompressionMethod.NONE) {
+            if (length > GelfUdpChunker.MAX_MESSAGE_SIZE) {
+                final ByteArrayBuffer truncated = truncate(binMessage, offset, length, GelfUdpChunker.MAX_MESSAGE_SIZE);
+                sendChunks(truncated.array(), 0, truncated.size());
+            } else {
+                sendChunks(binMessage, offset, length);
+            }
+            return;
+        }
+
+        final ByteArrayBuffer compressed = compressBufferPool.borrow();
+        try {
+            compressor.compress(binMessage, offset, length, compressed);
+            if (compressed.size() > GelfUdpChunker.MAX_MESSAGE_SIZE) {
+                compressTruncated(binMessage, offset, length, compressed);
+            }
+            sendChunks(compressed.array(), 0, compressed.size());
+        } finally {
+            compressBufferPool.release(compressed);
+        }
+    }
+
+    /**
+     * Truncates a message whose compressed size exceeds the maximum number of chunks - instead of
+     * dropping it. The uncompressed size that fits is estimated from the compression ratio.
+     */
+    private void compressTruncated(final byte[] binMessage, final int offset, final int length,
+                                   final ByteArrayBuffer compressed) throws IOException {
+        int maxSize = length;
+        for (int i = 0; i < MAX_TRUNCATION_ATTEMPTS && compressed.size() > GelfUdpChunker.MAX_MESSAGE_SIZE; i++) {
+            maxSize = (int) (maxSize * TRUNCATION_MARGIN * GelfUdpChunker.MAX_MESSAGE_SIZE / compressed.size());
+            final ByteArrayBuffer truncated = truncate(binMessage, offset, length, maxSize);
+            compressed.reset();
+            compressor.compress(truncated.array(), 0, truncated.size(), compressed);
+        }
+    }
+
+    private static ByteArrayBuffer truncate(final byte[] binMessage, final int offset, final int length,
+                                            final int maxSize) {
+        final ByteArrayBuffer truncated = new ByteArrayBuffer(length);
+        truncated.write(binMessage, offset, length);
+        MessageTruncator.truncate(truncated, 0, maxSize);
+        return truncated;
+    }
 
+    private void sendChunks(final byte[] messageToSend, final int offset, final int length) throws IOException {
         final InetSocketAddress remote = new InetSocketAddress(addressResolver.resolve(),
                 getGraylogPort());
 
-        for (final ByteBuffer chunk : chunker.chunks(messageToSend)) {
+        for (final ByteBuffer chunk : chunker.chunks(messageToSend, offset, length)) {
             while (chunk.hasRemaining()) {
                 robustChannel.send(chunk, remote);
             }
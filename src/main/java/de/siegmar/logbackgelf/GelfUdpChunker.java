@@ -70,6 +70,11 @@ final class GelfUdpChunker {
 
     private static final int MAX_CHUNK_PAYLOAD_SIZE = MAX_CHUNK_SIZE - HEADER_LENGTH;
 
+    /**
+     * Maximum size of a message that can be sent - using the maximum number of chunks of the maximum size.
+     */
+    static final int MAX_MESSAGE_SIZE = MAX_CHUNKS * MAX_CHUNK_PAYLOAD_SIZE;
+
     /**
      * The maximum size used for the payload.
      */
@@ -95,11 +100,12 @@ final class GelfUdpChunker {
     }
 
     private static ByteBuffer buildChunk(final long messageId, final byte[] message,
+                                         final int offset, final int length,
                                          final byte chunkCount, final byte chunkNo,
                                          final int maxChunkPayloadSize) {
 
         final int chunkPayloadSize =
-            Math.min(maxChunkPayloadSize, message.length - chunkNo * maxChunkPayloadSize);
+            Math.min(maxChunkPayloadSize, length - chunkNo * maxChunkPayloadSize);
 
         final ByteBuffer byteBuffer = ByteBuffer.allocate(HEADER_LENGTH + chunkPayloadSize);
 
@@ -116,7 +122,7 @@ final class GelfUdpChunker {
         byteBuffer.put(chunkCount);
 
         // message
-        byteBuffer.put(message, chunkNo * maxChunkPayloadSize, chunkPayloadSize);
+        byteBuffer.put(message, offset + chunkNo * maxChunkPayloadSize, chunkPayloadSize);
 
         byteBuffer.flip();
 
@@ -124,34 +130,42 @@ final class GelfUdpChunker {
     }
 
     Iterable<? extends ByteBuffer> chunks(final byte[] message) {
-        return (Iterable<ByteBuffer>) () -> new ChunkIterator(message);
+        return chunks(message, 0, message.length);
+    }
+
+    Iterable<? extends ByteBuffer> chunks(final byte[] message, final int offset, final int length) {
+        return (Iterable<ByteBuffer>) () -> new ChunkIterator(message, offset, length);
     }
 
     private final class ChunkIterator implements Iterator<ByteBuffer> {
 
         private final byte[] message;
+        private final int offset;
+        private final int length;
         private final int chunkSize;
         private final byte chunkCount;
         private final long messageId;
 
         private byte chunkIdx;
 
-        private ChunkIterator(final byte[] message) {
+        private ChunkIterator(final byte[] message, final int offset, final int length) {
             this.message = message;
+            this.offset = offset;
+            this.length = length;
 
             int localChunkSize = maxChunkPayloadSize;
-            int localChunkCount = calcChunkCount(message, localChunkSize);
+            int localChunkCount = calcChunkCount(length, localChunkSize);
 
             if (localChunkCount > MAX_CHUNKS) {
                 // Number of chunks would exceed maximum chunk limit - use a larger chunk size
                 // as a last resort.
 
                 localChunkSize = MAX_CHUNK_PAYLOAD_SIZE;
-                localChunkCount = calcChunkCount(message, localChunkSize);
+                localChunkCount = calcChunkCount(length, localChunkSize);
             }
 
             if (localChunkCount > MAX_CHUNKS) {
-                throw new IllegalArgumentException("Message to big (" + message.length + " B)");
+                throw new IllegalArgumentException("Message to big (" + length + " B)");
             }
 
             this.chunkSize = localChunkSize;
@@ -160,8 +174,8 @@ final class GelfUdpChunker {
             messageId = localChunkCount > 1 ? messageIdSupplier.getAsLong() : 0;
         }
 
-        private int calcChunkCount(final byte[] msg, final int cs) {
-            return (msg.length + cs - 1) / cs;
+        private int calcChunkCount(final int msgLength, final int cs) {
+            return (msgLength + cs - 1) / cs;
         }
 
         @Override
@@ -177,10 +191,10 @@ final class GelfUdpChunker {
 
             if (chunkCount == 1) {
                 chunkIdx++;
-                return ByteBuffer.wrap(message);
+                return ByteBuffer.wrap(message, offset, length);
             }
 
-            return buildChunk(messageId, message, chunkCount, chunkIdx++, chunkSize);
+            return buildChunk(messageId, message, offset, length, chunkCount, chunkIdx++, chunkSize);
         }
 
     }
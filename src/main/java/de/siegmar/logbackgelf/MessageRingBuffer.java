@@ -0,0 +1,159 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free multi-producer/multi-consumer queue of encoded messages (after Dmitry Vyukov's
+ * bounded MPMC queue). Messages are copied into pre-allocated byte slots, so enqueuing a message
+ * doesn't allocate unless the message exceeds the slot size.
+ * <p>
+ * Each slot has a sequence number that tells producers and consumers if the slot is free or
+ * holds a message for the current lap. A successful CAS on the tail (head) position grants
+ * exclusive access to the slot until its sequence number is advanced - which also publishes the
+ * slot content to the other side.
+ */
+final class MessageRingBuffer {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final int mask;
+    private final int slotSize;
+    private final AtomicLongArray sequences;
+    private final byte[][] slots;
+    private final int[] lengths;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Creates a ring buffer.
+     *
+     * @param capacity the minimum number of messages the buffer can hold - rounded up to the next
+     *     power of two (at least 2, the sequence numbers can't tell a full from an empty slot with
+     *     a single slot).
+     * @param slotSize the size of the pre-allocated slots. Larger messages are stored in
+     *     temporarily allocated arrays.
+     */
+    MessageRingBuffer(final int capacity, final int slotSize) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        final int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        this.slotSize = slotSize;
+        sequences = new AtomicLongArray(size);
+        slots = new byte[size][];
+        lengths = new int[size];
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+            slots[i] = new byte[slotSize];
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * The number of messages in the buffer - only an estimate while producers or consumers are active.
+     *
+     * @return the number of messages.
+     */
+    int size() {
+        final long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    /**
+     * Adds a copy of the given message to the buffer.
+     *
+     * @param message the array containing the message.
+     * @param offset the offset of the message within the array.
+     * @param length the length of the message.
+     * @return {@code false} if the buffer is full.
+     */
+    boolean offer(final byte[] message, final int offset, final int length) {
+        long pos = tail.get();
+        while (true) {
+            final int idx = (int) pos & mask;
+            final long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    if (length > slots[idx].length) {
+                        slots[idx] = new byte[length];
+                    }
+                    System.arraycopy(message, offset, slots[idx], 0, length);
+                    lengths[idx] = length;
+                    sequences.lazySet(idx, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // slot still occupied by the previous lap
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest message from the buffer and passes it to the consumer. The slot is not
+     * reused before the consumer returns.
+     *
+     * @param consumer the consumer of the message - the passed array is only valid during the call.
+     * @return {@code false} if the buffer is empty.
+     * @throws IOException if thrown by the consumer - the message is removed anyway.
+     */
+    boolean poll(final EncodedMessageConsumer consumer) throws IOException {
+        long pos = head.get();
+        while (true) {
+            final int idx = (int) pos & mask;
+            final long diff = sequences.get(idx) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    try {
+                        consumer.accept(slots[idx], 0, lengths[idx]);
+                    } finally {
+                        release(idx, pos);
+                    }
+                    return true;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    private void release(final int idx, final long pos) {
+        if (slots[idx].length > slotSize) {
+            // don't retain arrays of oversized messages
+            slots[idx] = new byte[slotSize];
+        }
+        sequences.lazySet(idx, pos + mask + 1);
+    }
+
+}
@@ -0,0 +1,258 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Shrinks an encoded GELF message to a maximum size by truncating string values in place - the
+ * full message first, then the longest additional fields. Truncated messages are marked by the
+ * additional field {@value #TRUNCATED_FIELD} with the value {@code "true"} (GELF only allows string and
+ * number values).
+ * <p>
+ * The message has to be a flat JSON object as written by {@link Utf8JsonEncoder} - a message that
+ * doesn't end with a closing curly brace is left untouched. Values are only cut at character
+ * boundaries (never within an escape sequence or a multibyte UTF-8 sequence).
+ * Version, host, short message and non-string values are never truncated - if they alone exceed the
+ * maximum size, the message remains larger than requested.
+ */
+final class MessageTruncator {
+
+    static final String TRUNCATED_FIELD = "_truncated";
+
+    private static final byte[] FULL_MESSAGE_KEY = "full_message".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUNCATED_KEY = TRUNCATED_FIELD.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUNCATED_SUFFIX =
+        (",\"" + TRUNCATED_FIELD + "\":\"true\"").getBytes(StandardCharsets.US_ASCII);
+
+    private MessageTruncator() {
+    }
+
+    /**
+     * Truncates the message in the buffer (from {@code start} up to the end of the buffer) if it
+     * exceeds {@code maxSize} bytes.
+     *
+     * @param buf the buffer containing the message.
+     * @param start the offset of the message within the buffer.
+     * @param maxSize the maximum size of the message in bytes.
+     * @return {@code true} if the message has been truncated.
+     */
+    static boolean truncate(final ByteArrayBuffer buf, final int start, final int maxSize) {
+        final int size = buf.size() - start;
+        final byte[] arr = buf.array();
+        if (size <= maxSize || arr[buf.size() - 1] != '}') {
+            return false;
+        }
+
+        final List<Field> fields = parse(arr, start, buf.size());
+        final boolean marked = fields.stream().anyMatch(f -> f.keyEquals(arr, TRUNCATED_KEY));
+
+        int excess = size - maxSize + (marked ? 0 : TRUNCATED_SUFFIX.length);
+        for (final Field field : truncationCandidates(arr, fields)) {
+            if (excess <= 0) {
+                break;
+            }
+            excess -= field.cut(arr, excess);
+        }
+
+        compact(buf, start, fields, marked);
+        return true;
+    }
+
+    /**
+     * Fields that may be truncated in the order they should be truncated.
+     */
+    private static List<Field> truncationCandidates(final byte[] arr, final List<Field> fields) {
+        final List<Field> candidates = new ArrayList<>();
+        final List<Field> additionalFields = new ArrayList<>();
+        for (final Field field : fields) {
+            if (!field.string) {
+                continue;
+            }
+            if (field.keyEquals(arr, FULL_MESSAGE_KEY)) {
+                candidates.add(field);
+            } else if (arr[field.keyStart] == '_') {
+                additionalFields.add(field);
+            }
+        }
+
+        additionalFields.sort(Comparator.comparingInt(Field::valueLength).reversed());
+        candidates.addAll(additionalFields);
+        return candidates;
+    }
+
+    /**
+     * Parses the top-level fields of the JSON object.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static List<Field> parse(final byte[] arr, final int start, final int end) {
+        final List<Field> fields = new ArrayList<>();
+
+        // skip opening curly brace
+        int pos = start + 1;
+        while (pos < end && arr[pos] == '"') {
+            final int keyStart = pos + 1;
+            final int keyEnd = stringEnd(arr, keyStart, end);
+
+            // skip closing quote and colon
+            pos = keyEnd + 2;
+            final Field field;
+            if (arr[pos] == '"') {
+                final int valueEnd = stringEnd(arr, pos + 1, end);
+                field = new Field(keyStart, keyEnd, pos + 1, valueEnd, true);
+                pos = valueEnd + 1;
+            } else {
+                int valueEnd = pos;
+                while (valueEnd < end && arr[valueEnd] != ',' && arr[valueEnd] != '}') {
+                    valueEnd++;
+                }
+                field = new Field(keyStart, keyEnd, pos, valueEnd, false);
+                pos = valueEnd;
+            }
+            fields.add(field);
+
+            // skip comma
+            if (pos < end && arr[pos] == ',') {
+                pos++;
+            }
+        }
+
+        return fields;
+    }
+
+    /**
+     * Finds the closing quote of a string.
+     */
+    private static int stringEnd(final byte[] arr, final int from, final int end) {
+        int pos = from;
+        while (pos < end && arr[pos] != '"') {
+            pos += arr[pos] == '\\' ? 2 : 1;
+        }
+        return pos;
+    }
+
+    /**
+     * Removes the cut parts of the values and adds the truncation marker.
+     */
+    private static void compact(final ByteArrayBuffer buf, final int start, final List<Field> fields,
+                                final boolean marked) {
+        final byte[] arr = buf.array();
+        final int end = buf.size();
+
+        int dst = start;
+        int src = start;
+        for (final Field field : fields) {
+            if (field.cutStart < field.valueEnd) {
+                System.arraycopy(arr, src, arr, dst, field.cutStart - src);
+                dst += field.cutStart - src;
+                src = field.valueEnd;
+            }
+        }
+
+        // remaining bytes without the closing curly brace
+        final int closingBrace = end - 1;
+        System.arraycopy(arr, src, arr, dst, closingBrace - src);
+        dst += closingBrace - src;
+        buf.size(dst);
+
+        if (!marked) {
+            buf.write(TRUNCATED_SUFFIX);
+        }
+        buf.write('}');
+    }
+
+    private static final class Field {
+
+        private final int keyStart;
+        private final int keyEnd;
+        private final int valueStart;
+        private final int valueEnd;
+        private final boolean string;
+
+        /**
+         * Start of the part of the value that is removed - {@code valueEnd} if nothing is removed.
+         */
+        private int cutStart;
+
+        Field(final int keyStart, final int keyEnd, final int valueStart, final int valueEnd,
+              final boolean string) {
+            this.keyStart = keyStart;
+            this.keyEnd = keyEnd;
+            this.valueStart = valueStart;
+            this.valueEnd = valueEnd;
+            this.string = string;
+            this.cutStart = valueEnd;
+        }
+
+        int valueLength() {
+            return valueEnd - valueStart;
+        }
+
+        boolean keyEquals(final byte[] arr, final byte[] key) {
+            return keyEnd - keyStart == key.length
+                && Arrays.equals(arr, keyStart, keyEnd, key, 0, key.length);
+        }
+
+        /**
+         * Cuts (up to) {@code bytes} bytes from the end of the value - at a character boundary.
+         *
+         * @return the number of bytes cut.
+         */
+        int cut(final byte[] arr, final int bytes) {
+            final int limit = valueEnd - bytes;
+            int pos = valueStart;
+            while (pos < valueEnd) {
+                final int next = pos + charLength(arr[pos], arr[pos + 1]);
+                if (next > limit) {
+                    break;
+                }
+                pos = next;
+            }
+            cutStart = pos;
+            return valueEnd - pos;
+        }
+
+        /**
+         * Length of an escaped, UTF-8 encoded character starting with the given bytes.
+         */
+        @SuppressWarnings({"checkstyle:MagicNumber", "PMD.AvoidLiteralsInIfCondition"})
+        private static int charLength(final byte first, final byte second) {
+            if (first == '\\') {
+                return second == 'u' ? 6 : 2;
+            }
+            if ((first & 0x80) == 0) {
+                return 1;
+            }
+            if ((first & 0xE0) == 0xC0) {
+                return 2;
+            }
+            if ((first & 0xF0) == 0xE0) {
+                return 3;
+            }
+            return 4;
+        }
+
+    }
+
+}
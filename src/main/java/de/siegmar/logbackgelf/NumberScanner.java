@@ -0,0 +1,161 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+/**
+ * Allocation free classification of strings that may represent a number - a replacement for
+ * parsing every value with {@link java.math.BigDecimal#BigDecimal(String)} and catching the
+ * {@link NumberFormatException} in the (common) non-numeric case.
+ */
+final class NumberScanner {
+
+    /**
+     * The smallest adjusted exponent {@link java.math.BigDecimal#toString()} renders without
+     * scientific notation.
+     */
+    private static final int MIN_PLAIN_ADJUSTED_EXPONENT = -6;
+
+    enum Result {
+
+        /**
+         * The string can't be parsed as number.
+         */
+        NONE,
+
+        /**
+         * The string is a valid JSON number that is identical to the string representation of the
+         * {@link java.math.BigDecimal} parsed from it - it can be written verbatim.
+         */
+        CANONICAL,
+
+        /**
+         * The string may be a number but not in canonical form (e.g. leading zeros, exponent,
+         * plus sign or non-ASCII digits) - it has to be parsed to get its JSON representation.
+         */
+        NON_CANONICAL
+
+    }
+
+    private NumberScanner() {
+    }
+
+    /**
+     * Classifies the given string.
+     *
+     * @param str the string to classify.
+     * @return the classification.
+     */
+    @SuppressWarnings({
+        "checkstyle:CyclomaticComplexity",
+        "checkstyle:NPathComplexity",
+        "checkstyle:ReturnCount",
+        "PMD.CognitiveComplexity",
+        "PMD.CyclomaticComplexity",
+        "PMD.NPathComplexity"
+    })
+    static Result scan(final String str) {
+        final int len = str.length();
+        int i = 0;
+        boolean canonical = true;
+
+        // sign
+        if (i < len && (str.charAt(i) == '-' || str.charAt(i) == '+')) {
+            canonical = str.charAt(i) == '-';
+            i++;
+        }
+
+        // integer part
+        final int intStart = i;
+        int significantDigits = 0;
+        while (i < len && isDigit(str.charAt(i))) {
+            if (significantDigits > 0 || str.charAt(i) != '0') {
+                significantDigits++;
+            }
+            i++;
+        }
+        final int intDigits = i - intStart;
+        if (intDigits > 1 && str.charAt(intStart) == '0') {
+            canonical = false;
+        }
+
+        // fraction part
+        int fractionDigits = 0;
+        if (i < len && str.charAt(i) == '.') {
+            i++;
+            final int fractionStart = i;
+            while (i < len && isDigit(str.charAt(i))) {
+                if (significantDigits > 0 || str.charAt(i) != '0') {
+                    significantDigits++;
+                }
+                i++;
+            }
+            fractionDigits = i - fractionStart;
+            if (intDigits == 0 || fractionDigits == 0) {
+                canonical = false;
+            }
+        }
+
+        if (intDigits + fractionDigits == 0) {
+            return remainder(str, i);
+        }
+
+        // exponent part
+        if (i < len && (str.charAt(i) == 'e' || str.charAt(i) == 'E')) {
+            canonical = false;
+            i++;
+            if (i < len && (str.charAt(i) == '-' || str.charAt(i) == '+')) {
+                i++;
+            }
+            final int exponentStart = i;
+            while (i < len && isDigit(str.charAt(i))) {
+                i++;
+            }
+            if (i == exponentStart) {
+                return remainder(str, i);
+            }
+        }
+
+        if (i < len) {
+            return remainder(str, i);
+        }
+
+        if (!canonical || significantDigits == 0 && str.charAt(0) == '-') {
+            // negative zero is rendered without sign
+            return Result.NON_CANONICAL;
+        }
+
+        final int precision = Math.max(significantDigits, 1);
+        return precision - 1 - fractionDigits < MIN_PLAIN_ADJUSTED_EXPONENT
+            ? Result.NON_CANONICAL : Result.CANONICAL;
+    }
+
+    private static boolean isDigit(final char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    /**
+     * Classifies a string that contains an unexpected character at {@code idx}. Non-ASCII digits
+     * are accepted by BigDecimal - leave those to it.
+     */
+    private static Result remainder(final String str, final int idx) {
+        return idx < str.length() && Character.isDigit(str.charAt(idx)) ? Result.NON_CANONICAL : Result.NONE;
+    }
+
+}
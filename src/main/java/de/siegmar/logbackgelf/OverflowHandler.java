@@ -0,0 +1,211 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import ch.qos.logback.classic.Level;
+
+/**
+ * Implements the {@link OverflowPolicy} of an {@link AsyncSender} and counts the dropped messages
+ * per policy.
+ */
+final class OverflowHandler {
+
+    /**
+     * With {@link OverflowPolicy#DROP_BELOW_LEVEL}, this fraction (1/n) of the queue is reserved for
+     * important messages.
+     */
+    private static final int RESERVED_FRACTION = 5;
+
+    /**
+     * Maximum number of attempts to evict the oldest message - to not livelock with concurrent
+     * producers that immediately take the freed slot.
+     */
+    private static final int MAX_EVICTIONS = 3;
+
+    /**
+     * Initial time to park a producer that waits for free space with {@link OverflowPolicy#BLOCK} -
+     * doubled on every unsuccessful attempt up to {@link #MAX_PARK_NANOS}.
+     */
+    private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final EncodedMessageConsumer DISCARD = (message, offset, length) -> { };
+
+    private final OverflowPolicy policy;
+    private final long blockTimeoutNanos;
+    private final Level dropLevel;
+    private final LongAdder[] droppedMessages = new LongAdder[OverflowPolicy.values().length];
+
+    /**
+     * Creates the handler.
+     *
+     * @param policy the policy.
+     * @param blockTimeout the maximum time (in milliseconds) to block with {@link OverflowPolicy#BLOCK}.
+     * @param dropLevel messages below this level are dropped first with
+     *     {@link OverflowPolicy#DROP_BELOW_LEVEL}.
+     */
+    OverflowHandler(final OverflowPolicy policy, final long blockTimeout, final Level dropLevel) {
+        this.policy = policy;
+        blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeout);
+        this.dropLevel = dropLevel;
+        for (int i = 0; i < droppedMessages.length; i++) {
+            droppedMessages[i] = new LongAdder();
+        }
+    }
+
+    OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Checks if a message of the given level has to be dropped before it is even encoded - because
+     * the remaining capacity of the queue is reserved for more important messages.
+     *
+     * @param level the level of the message.
+     * @param ringBuffer the queue.
+     * @return {@code true} if the message has to be dropped (and has been counted as dropped).
+     */
+    boolean discard(final Level level, final MessageRingBuffer ringBuffer) {
+        if (policy != OverflowPolicy.DROP_BELOW_LEVEL || level.isGreaterOrEqual(dropLevel)) {
+            return false;
+        }
+
+        final int capacity = ringBuffer.capacity();
+        if (ringBuffer.size() < capacity - capacity / RESERVED_FRACTION) {
+            return false;
+        }
+
+        droppedMessages[OverflowPolicy.DROP_BELOW_LEVEL.ordinal()].increment();
+        return true;
+    }
+
+    /**
+     * Handles a message that didn't fit into the full queue.
+     *
+     * @param ringBuffer the queue.
+     * @param message the array containing the message.
+     * @param offset the offset of the message within the array.
+     * @param length the length of the message.
+     * @return {@code true} if the message has been queued after all.
+     */
+    boolean overflow(final MessageRingBuffer ringBuffer, final byte[] message, final int offset,
+                     final int length) {
+        final boolean queued;
+        final OverflowPolicy dropPolicy;
+        switch (policy) {
+            case BLOCK:
+                queued = block(ringBuffer, message, offset, length);
+                dropPolicy = OverflowPolicy.BLOCK;
+                break;
+            case DROP_OLDEST:
+                queued = evict(ringBuffer, message, offset, length);
+                dropPolicy = OverflowPolicy.DROP_NEWEST;
+                break;
+            default:
+                queued = false;
+                dropPolicy = OverflowPolicy.DROP_NEWEST;
+        }
+
+        if (!queued) {
+            droppedMessages[dropPolicy.ordinal()].increment();
+        }
+        return queued;
+    }
+
+    /**
+     * Waits for free space by parking the logging thread (with an increasing park time) - independent
+     * of the {@link WaitStrategy} of the sender thread, so a blocked logging thread never busy spins.
+     */
+    private boolean block(final MessageRingBuffer ringBuffer, final byte[] message, final int offset,
+                          final int length) {
+        final long deadline = System.nanoTime() + blockTimeoutNanos;
+        long parkNanos = MIN_PARK_NANOS;
+        long remaining = blockTimeoutNanos;
+        while (remaining > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(Math.min(parkNanos, remaining));
+            if (ringBuffer.offer(message, offset, length)) {
+                return true;
+            }
+            parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            remaining = deadline - System.nanoTime();
+        }
+        return false;
+    }
+
+    private boolean evict(final MessageRingBuffer ringBuffer, final byte[] message, final int offset,
+                          final int length) {
+        for (int i = 0; i < MAX_EVICTIONS; i++) {
+            if (pollDiscard(ringBuffer)) {
+                // the evicted message is counted even if a concurrent producer takes the freed slot
+                droppedMessages[OverflowPolicy.DROP_OLDEST.ordinal()].increment();
+            }
+            if (ringBuffer.offer(message, offset, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean pollDiscard(final MessageRingBuffer ringBuffer) {
+        try {
+            return ringBuffer.poll(DISCARD);
+        } catch (final IOException e) {
+            // the discarding consumer doesn't throw
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The number of messages dropped by the given policy. With {@link OverflowPolicy#DROP_OLDEST},
+     * these are the evicted messages. Messages that are dropped because no other policy applies (a
+     * message of {@link OverflowPolicy#DROP_BELOW_LEVEL} that doesn't fit into the queue despite its
+     * level or a failed eviction) are counted as {@link OverflowPolicy#DROP_NEWEST}.
+     *
+     * @param dropPolicy the policy.
+     * @return the number of dropped messages.
+     */
+    long getDroppedMessages(final OverflowPolicy dropPolicy) {
+        return droppedMessages[dropPolicy.ordinal()].sum();
+    }
+
+    long getDroppedMessages() {
+        long sum = 0;
+        for (final LongAdder counter : droppedMessages) {
+            sum += counter.sum();
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("OverflowHandler{policy=").append(policy);
+        for (final OverflowPolicy p : OverflowPolicy.values()) {
+            sb.append(", ").append(p).append('=').append(getDroppedMessages(p));
+        }
+        return sb.append('}').toString();
+    }
+
+}
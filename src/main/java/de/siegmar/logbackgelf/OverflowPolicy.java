@@ -0,0 +1,52 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+/**
+ * Policy of an asynchronous appender for handling messages while its queue is full - i.e. while
+ * messages are logged faster than they can be sent.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Block the logging thread until the queue has room for the message - but not longer than the
+     * configured timeout. The message is dropped if the timeout elapses.
+     */
+    BLOCK,
+
+    /**
+     * Drop the message that is about to be queued - the logging thread never waits.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Drop the oldest queued message to make room for the new one - the logging thread never
+     * waits and the most recent messages are kept.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Reserve the last fifth of the queue for important messages: messages below the configured
+     * level are dropped as soon as the queue is four fifths full. Important messages that don't fit
+     * into the queue are dropped like with {@link #DROP_NEWEST}.
+     */
+    DROP_BELOW_LEVEL
+
+}
@@ -20,10 +20,17 @@
 package de.siegmar.logbackgelf;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BooleanSupplier;
 
 final class RetryUtil {
 
+    /**
+     * Maximum time (in milliseconds) to sleep before the retry condition is checked again - to not
+     * delay a shutdown by a whole retry delay.
+     */
+    private static final long SLEEP_SLICE = 50;
+
     private RetryUtil() {
         // Utility class
     }
@@ -42,7 +49,9 @@ final class RetryUtil {
                 }
 
                 try {
-                    Thread.sleep(retryDelay);
+                    if (!sleep(retryDelay, retryCondition)) {
+                        rethrow(e);
+                    }
                 } catch (final InterruptedException ie) {
                     Thread.currentThread().interrupt();
                     rethrow(e);
@@ -51,6 +60,28 @@ final class RetryUtil {
         }
     }
 
+    /**
+     * Sleeps for the given delay - unless the retry condition becomes {@code false} in the meantime.
+     *
+     * @param delay the delay in milliseconds.
+     * @param retryCondition the retry condition.
+     * @return {@code false} if the retry condition became {@code false}.
+     * @throws InterruptedException if interrupted while sleeping.
+     */
+    private static boolean sleep(final long delay, final BooleanSupplier retryCondition)
+        throws InterruptedException {
+        final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+        long remaining = delay;
+        while (remaining > 0) {
+            Thread.sleep(Math.min(remaining, SLEEP_SLICE));
+            if (!retryCondition.getAsBoolean()) {
+                return false;
+            }
+            remaining = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+        }
+        return true;
+    }
+
     private static void rethrow(final Exception e) {
         if (e instanceof RuntimeException) {
             throw (RuntimeException) e;
@@ -102,47 +102,72 @@ class SimpleJsonEncoder implements Closeable {
 
     /**
      * Escape characters in string, if required per RFC-7159 (JSON).
+     * <p>
+     * Runs of characters that don't require escaping (usually the whole string) are appended in bulk.
      *
      * @param str string to be escaped.
      */
-    @SuppressWarnings({
-        "checkstyle:cyclomaticcomplexity",
-        "PMD.ImplicitSwitchFallThrough",
-        "PMD.AvoidLiteralsInIfCondition"
-    })
     private void escapeString(final String str) {
-        for (int i = 0; i < str.length(); i++) {
+        final int len = str.length();
+        int runStart = 0;
+        for (int i = 0; i < len; i++) {
             final char ch = str.charAt(i);
-            switch (ch) {
-                case QUOTE:
-                case '\\':
-                case '/':
-                    sb.append('\\');
-                    sb.append(ch);
-                    break;
-                case '\b':
-                    sb.append("\\b");
-                    break;
-                case '\f':
-                    sb.append("\\f");
-                    break;
-                case '\n':
-                    sb.append("\\n");
-                    break;
-                case '\r':
-                    // Graylog doesn't like carriage-return: https://github.com/Graylog2/graylog2-server/issues/4470
-                    break;
-                case '\t':
-                    sb.append("\\t");
-                    break;
-                default:
-                    if (ch < ' ') {
-                        sb.append(escapeCharacter(ch));
-                    } else {
-                        sb.append(ch);
-                    }
+            if (requiresEscaping(ch)) {
+                sb.append(str, runStart, i);
+                escapeCharacter(ch);
+                runStart = i + 1;
             }
         }
+
+        if (runStart == 0) {
+            sb.append(str);
+        } else {
+            sb.append(str, runStart, len);
+        }
+    }
+
+    /**
+     * Checks if a character has to be escaped (or removed, in case of carriage-return).
+     *
+     * @param ch the character to check.
+     * @return {@code true} if the character requires escaping.
+     */
+    static boolean requiresEscaping(final char ch) {
+        return ch < ' ' || ch == QUOTE || ch == '\\' || ch == '/';
+    }
+
+    /**
+     * Appends the escaped representation of a character that {@link #requiresEscaping(char) requires escaping}.
+     *
+     * @param ch character to be escaped.
+     */
+    @SuppressWarnings("PMD.ImplicitSwitchFallThrough")
+    private void escapeCharacter(final char ch) {
+        switch (ch) {
+            case QUOTE:
+            case '\\':
+            case '/':
+                sb.append('\\');
+                sb.append(ch);
+                break;
+            case '\b':
+                sb.append("\\b");
+                break;
+            case '\f':
+                sb.append("\\f");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                // Graylog doesn't like carriage-return: https://github.com/Graylog2/graylog2-server/issues/4470
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                sb.append(unicodeEscape(ch));
+        }
     }
 
     /**
@@ -152,7 +177,7 @@ class SimpleJsonEncoder implements Closeable {
      * @return escaped representation of character.
      */
     @SuppressWarnings({"checkstyle:magicnumber", "PMD.AvoidLiteralsInIfCondition"})
-    private static String escapeCharacter(final char ch) {
+    private static String unicodeEscape(final char ch) {
         final String prefix;
 
         if (ch < 0x10) {
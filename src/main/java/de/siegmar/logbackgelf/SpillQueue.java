@@ -0,0 +1,699 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+import ch.qos.logback.core.spi.ContextAware;
+
+/**
+ * Persistent buffer (journal) for messages that couldn't be sent because the destination is
+ * unavailable. Messages are appended to memory-mapped segment files and replayed - in order - by a
+ * background drainer thread as soon as the destination is available again.
+ * <p>
+ * Each segment file has a fixed size and contains checksummed, length-prefixed records:
+ * <pre>
+ * [int length][int CRC32C of message][length bytes of message] ... [int 0]
+ * </pre>
+ * The length is written last - a record becomes valid with it. Once a record has been replayed,
+ * its length is negated. Segment files survive a restart (or crash) of the JVM: {@link #start()}
+ * recovers all records that haven't been replayed and have a valid checksum. Recovered records
+ * can be replayed at a limited rate.
+ * <p>
+ * The total size of all segments is limited - if the limit is reached, the oldest segment is
+ * evicted (deleted) along with its messages.
+ * <p>
+ * A directory can only be used by one queue at a time - {@link #start()} locks it via a lock file.
+ */
+@SuppressWarnings("checkstyle:ClassFanOutComplexity")
+final class SpillQueue {
+
+    private static final String SEGMENT_PREFIX = "spill-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String LOCK_FILE = "spill.lock";
+    private static final int LENGTH_SIZE = Integer.BYTES;
+    private static final int HEADER_SIZE = LENGTH_SIZE + Integer.BYTES;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final long retryInterval;
+    private final EncodedMessageConsumer sender;
+    private final ContextAware status;
+    private final Thread drainer;
+    private final CRC32C checksum = new CRC32C();
+
+    /**
+     * Segments in order of their creation - the first one is read, the last one is written.
+     */
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    /**
+     * The number of queued messages recovered on start - written while holding the lock, read without.
+     */
+    private final AtomicInteger recovered = new AtomicInteger();
+
+    /**
+     * The number of queued messages appended since start - written while holding the lock, read without.
+     */
+    private final AtomicInteger appended = new AtomicInteger();
+
+    private final LongAdder droppedMessages = new LongAdder();
+
+    /**
+     * The number of failed replay attempts - lets {@link #stop(long)} give up on a failing destination.
+     */
+    private final AtomicLong replayFailures = new AtomicLong();
+
+    /**
+     * Minimum time (in nanoseconds) between the replay of two recovered messages. 0 = unlimited.
+     */
+    private long replayIntervalNanos;
+
+    /**
+     * If {@code true}, new messages don't have to wait for recovered messages to be replayed.
+     */
+    private boolean replayInterleaved;
+
+    private long nextSegmentId;
+
+    /**
+     * The channel of the lock file - holds the lock of the directory while the queue is started.
+     */
+    private FileChannel lockChannel;
+
+    private volatile boolean running = true;
+
+    /**
+     * Set while the destination is unavailable - to issue a single warning per outage.
+     * Only accessed by the drainer thread.
+     */
+    private boolean outage;
+
+    /**
+     * Earliest time (see {@link System#nanoTime()}) of the next replay of a recovered message.
+     * Only accessed by the drainer thread.
+     */
+    private long nextReplayTime;
+
+    /**
+     * Buffer of the drainer thread for the message being replayed.
+     */
+    private byte[] replayBuffer = new byte[0];
+
+    /**
+     * Length of the message being replayed. Only accessed by the drainer thread.
+     */
+    private int replayLength;
+
+    /**
+     * Creates the queue.
+     *
+     * @param directory the directory of the segment files.
+     * @param segmentSize the size (in bytes) of a segment file.
+     * @param maxSize the maximum total size (in bytes) of all segment files - at least one segment.
+     * @param retryInterval the time (in milliseconds) to wait after the destination failed
+     *     before the message is replayed again.
+     * @param sender sends a message - called by the drainer thread only.
+     * @param status the component to report errors to.
+     */
+    SpillQueue(final Path directory, final int segmentSize, final long maxSize, final long retryInterval,
+               final EncodedMessageConsumer sender, final ContextAware status) {
+        if (segmentSize <= HEADER_SIZE + LENGTH_SIZE) {
+            throw new IllegalArgumentException("segmentSize must be > " + (HEADER_SIZE + LENGTH_SIZE));
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        maxSegments = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxSize / segmentSize));
+        this.retryInterval = retryInterval;
+        this.sender = sender;
+        this.status = status;
+        drainer = new Thread(this::drain, "logback-gelf-spill-" + directory.getFileName());
+        drainer.setDaemon(true);
+    }
+
+    /**
+     * Configures the replay of messages recovered on start. Must be called before {@link #start()}.
+     *
+     * @param rate the maximum number of recovered messages replayed per second. 0 = unlimited.
+     * @param interleaved if {@code true}, new messages are sent while recovered messages are still
+     *     replayed - otherwise new messages are queued behind them.
+     */
+    void setReplay(final int rate, final boolean interleaved) {
+        replayIntervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+        replayInterleaved = interleaved;
+    }
+
+    /**
+     * Creates and locks the directory, recovers the segment files of a previous run and starts the
+     * drainer thread.
+     *
+     * @throws IOException if the directory couldn't be created, locked or read.
+     */
+    void start() throws IOException {
+        Files.createDirectories(directory);
+        lock();
+
+        try {
+            synchronized (this) {
+                for (final Path file : listSegmentFiles()) {
+                    nextSegmentId = Math.max(nextSegmentId, segmentId(file) + 1);
+                    recover(file);
+                }
+            }
+        } catch (final IOException e) {
+            unlock();
+            throw e;
+        }
+        if (recovered.get() > 0) {
+            status.addInfo("Recovered " + recovered.get() + " spilled messages from " + directory);
+        }
+
+        nextReplayTime = System.nanoTime();
+        drainer.start();
+    }
+
+    /**
+     * Locks the directory - another queue (in this or another JVM) using the same directory would
+     * replay and delete the segments of this queue.
+     *
+     * @throws IOException if the lock file couldn't be opened or the directory is already locked.
+     */
+    private void lock() throws IOException {
+        final Path file = directory.resolve(LOCK_FILE);
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+        boolean locked = false;
+        try {
+            locked = channel.tryLock() != null;
+        } catch (final OverlappingFileLockException e) {
+            // the lock is held by another queue of this JVM
+        } finally {
+            if (!locked) {
+                channel.close();
+            }
+        }
+        if (!locked) {
+            throw new IOException("Spill directory " + directory + " is already in use - lock file " + file
+                + " is held by another appender or process");
+        }
+        lockChannel = channel;
+    }
+
+    /**
+     * Releases the lock of the directory. The lock file is kept - deleting it could let two
+     * queues lock different files of the same directory.
+     */
+    private void unlock() {
+        if (lockChannel == null) {
+            return;
+        }
+        try {
+            // closing the channel releases the lock
+            lockChannel.close();
+        } catch (final IOException e) {
+            status.addWarn("Couldn't release lock of spill directory " + directory, e);
+        }
+        lockChannel = null;
+    }
+
+    private List<Path> listSegmentFiles() throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+            SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (final Path file : stream) {
+                if (segmentId(file) >= 0) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(Comparator.comparingLong(SpillQueue::segmentId));
+        return files;
+    }
+
+    private static long segmentId(final Path file) {
+        final String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void recover(final Path file) throws IOException {
+        final Segment segment = Segment.open(file);
+        final int pending = segment.recover(new CRC32C());
+        if (segment.isCorrupt()) {
+            status.addWarn("Spill segment " + file + " is corrupt - recovered " + pending
+                + " messages before the corruption");
+        }
+
+        if (pending == 0) {
+            delete(segment);
+        } else if (segments.size() >= maxSegments) {
+            droppedMessages.add(pending);
+            delete(segment);
+            status.addWarn("Spill queue is full - dropped recovered segment with " + pending + " messages");
+        } else {
+            segments.addLast(segment);
+            recovered.addAndGet(pending);
+        }
+    }
+
+    /**
+     * Checks if the queue is empty. As long as it isn't, new messages have to be appended to the
+     * queue - to keep the order of the messages. With interleaved replay, messages recovered on
+     * start are not taken into account.
+     *
+     * @return {@code true} if no messages are queued that new messages have to wait for.
+     */
+    boolean isEmpty() {
+        return appended.get() == 0 && (replayInterleaved || recovered.get() == 0);
+    }
+
+    int size() {
+        return appended.get() + recovered.get();
+    }
+
+    /**
+     * The number of messages that have been dropped because they exceeded the segment size or
+     * because their segment has been evicted.
+     *
+     * @return the number of dropped messages.
+     */
+    long getDroppedMessages() {
+        return droppedMessages.sum();
+    }
+
+    /**
+     * Appends a copy of the given message to the queue.
+     *
+     * @param message the array containing the message.
+     * @param offset the offset of the message within the array.
+     * @param length the length of the message.
+     * @return {@code false} if the message has been dropped because it exceeds the segment size.
+     * @throws IOException if a new segment file couldn't be created.
+     */
+    synchronized boolean append(final byte[] message, final int offset, final int length) throws IOException {
+        if (HEADER_SIZE + length + LENGTH_SIZE > segmentSize) {
+            droppedMessages.increment();
+            status.addWarn("Message of " + length + " bytes exceeds the spill segment size of "
+                + segmentSize + " bytes - dropping it");
+            return false;
+        }
+
+        Segment segment = segments.peekLast();
+        if (segment != null && segment.isConsumed() && !segment.recovered) {
+            // reuse the segment once all of its messages have been replayed
+            segment.reset();
+        }
+        if (segment == null || !segment.hasRoom(length)) {
+            segment = newSegment();
+        }
+
+        checksum.reset();
+        checksum.update(message, offset, length);
+        segment.append(message, offset, length, (int) checksum.getValue());
+        if (appended.getAndIncrement() == 0 && recovered.get() == 0) {
+            notifyAll();
+        }
+        return true;
+    }
+
+    private Segment newSegment() throws IOException {
+        if (segments.size() >= maxSegments) {
+            final Segment evicted = segments.removeFirst();
+            final int lost = evicted.remaining();
+            droppedMessages.add(lost);
+            counter(evicted).addAndGet(-lost);
+            delete(evicted);
+            status.addWarn("Spill queue is full - evicted oldest segment with " + lost + " messages");
+        }
+
+        final Path file = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, nextSegmentId++,
+            SEGMENT_SUFFIX));
+        final Segment segment = Segment.create(file, segmentSize);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private AtomicInteger counter(final Segment segment) {
+        return segment.recovered ? recovered : appended;
+    }
+
+    private void drain() {
+        while (running) {
+            final Segment segment = awaitMessage();
+            if (segment == null) {
+                break;
+            }
+
+            if (segment.recovered) {
+                pace();
+            }
+
+            if (replay()) {
+                commit(segment);
+            } else {
+                awaitRetry();
+            }
+        }
+    }
+
+    /**
+     * Waits for a message and copies it into the replay buffer.
+     *
+     * @return the segment of the message or {@code null} if the queue has been stopped.
+     */
+    private synchronized Segment awaitMessage() {
+        while (running && size() == 0) {
+            try {
+                wait();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        if (!running) {
+            return null;
+        }
+
+        Segment segment = segments.getFirst();
+        while (segment.isConsumed()) {
+            // only the last segment can be consumed while messages are queued
+            delete(segments.removeFirst());
+            segment = segments.getFirst();
+        }
+
+        replayLength = segment.nextLength();
+        replayBuffer = segment.read(replayBuffer);
+        return segment;
+    }
+
+    /**
+     * Limits the replay rate of recovered messages.
+     */
+    private void pace() {
+        if (replayIntervalNanos == 0) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        while (running && now - nextReplayTime < 0) {
+            // stop() unparks the drainer thread
+            LockSupport.parkNanos(nextReplayTime - now);
+            now = System.nanoTime();
+        }
+        nextReplayTime = now + replayIntervalNanos;
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private boolean replay() {
+        try {
+            sender.accept(replayBuffer, 0, replayLength);
+        } catch (final Exception e) {
+            // Could be IOException or some kind of RuntimeException
+            replayFailures.incrementAndGet();
+            if (!outage) {
+                outage = true;
+                status.addWarn("Couldn't replay spilled messages - retrying every " + retryInterval + " ms", e);
+            }
+            return false;
+        }
+
+        if (outage) {
+            outage = false;
+            status.addInfo("Replaying spilled messages succeeded again");
+        }
+        return true;
+    }
+
+    private synchronized void commit(final Segment segment) {
+        if (segments.peekFirst() != segment) {
+            // the segment has been evicted (and its messages counted as dropped) in the meantime
+            return;
+        }
+
+        segment.markConsumed();
+        counter(segment).decrementAndGet();
+        if (segment.isConsumed() && segments.size() > 1) {
+            delete(segments.removeFirst());
+        }
+        if (size() == 0) {
+            // wakes up stop() waiting for the queue to be drained
+            notifyAll();
+        }
+    }
+
+    private void delete(final Segment segment) {
+        try {
+            Files.deleteIfExists(segment.file);
+        } catch (final IOException e) {
+            status.addWarn("Couldn't delete spill segment " + segment.file, e);
+        }
+    }
+
+    private synchronized void awaitRetry() {
+        if (running) {
+            try {
+                wait(retryInterval);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stops the drainer thread - after the queued messages have been replayed, the destination
+     * failed or the deadline has been reached - and releases the lock of the directory. Messages
+     * that haven't been replayed remain in the segment files and are recovered on the next start.
+     *
+     * @param deadline the time (see {@link System#nanoTime()}) until queued messages are replayed.
+     * @return the number of messages that remained in the queue.
+     */
+    int stop(final long deadline) {
+        final int queued = size();
+        synchronized (this) {
+            awaitDrained(deadline);
+            running = false;
+            notifyAll();
+        }
+        LockSupport.unpark(drainer);
+
+        try {
+            drainer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        unlock();
+
+        final int left = size();
+        if (queued > 0) {
+            status.addInfo("Replayed " + (queued - left) + " spilled messages on stop - " + left
+                + " messages remain in " + directory + " and are replayed after the next start");
+        }
+        return left;
+    }
+
+    private synchronized void awaitDrained(final long deadline) {
+        final long failures = replayFailures.get();
+        while (size() > 0 && replayFailures.get() == failures && drainer.isAlive()) {
+            final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return;
+            }
+            try {
+                // the drainer notifies once the queue is empty - a failed replay is noticed after the retry interval
+                wait(Math.min(remaining, Math.max(1, retryInterval)));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * A memory-mapped segment file. Guarded by the lock of the queue.
+     */
+    private static final class Segment {
+
+        private final Path file;
+        private final MappedByteBuffer buffer;
+
+        /**
+         * If {@code true}, the segment has been recovered on start. Recovered segments are read only.
+         */
+        private final boolean recovered;
+
+        private int writePosition;
+        private int readPosition;
+        private int count;
+        private boolean corrupt;
+
+        private Segment(final Path file, final MappedByteBuffer buffer, final boolean recovered) {
+            this.file = file;
+            this.buffer = buffer;
+            this.recovered = recovered;
+        }
+
+        static Segment create(final Path file, final int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // the mapping stays valid after the channel has been closed
+                return new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), false);
+            }
+        }
+
+        static Segment open(final Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+                return new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()), true);
+            }
+        }
+
+        /**
+         * Scans the segment for records that haven't been replayed yet - up to the end marker or
+         * the first invalid record.
+         *
+         * @param crc the checksum to verify the records with.
+         * @return the number of records that haven't been replayed.
+         */
+        int recover(final CRC32C crc) {
+            int position = 0;
+            while (position + HEADER_SIZE <= buffer.capacity()) {
+                final int length = buffer.getInt(position);
+                if (length == 0) {
+                    break;
+                }
+
+                final int size = length == Integer.MIN_VALUE ? -1 : Math.abs(length);
+                if (size < 0 || size > buffer.capacity() - position - HEADER_SIZE
+                    || length > 0 && !verify(crc, position, length)) {
+                    corrupt = true;
+                    break;
+                }
+
+                if (length > 0) {
+                    count++;
+                }
+                position += HEADER_SIZE + size;
+            }
+            writePosition = position;
+            return count;
+        }
+
+        private boolean verify(final CRC32C crc, final int position, final int length) {
+            crc.reset();
+            crc.update(buffer.slice(position + HEADER_SIZE, length));
+            return (int) crc.getValue() == buffer.getInt(position + LENGTH_SIZE);
+        }
+
+        boolean isCorrupt() {
+            return corrupt;
+        }
+
+        boolean hasRoom(final int length) {
+            return !recovered && buffer.capacity() - writePosition >= HEADER_SIZE + length;
+        }
+
+        void append(final byte[] message, final int offset, final int length, final int checksum) {
+            buffer.put(writePosition + HEADER_SIZE, message, offset, length);
+            buffer.putInt(writePosition + LENGTH_SIZE, checksum);
+
+            final int next = writePosition + HEADER_SIZE + length;
+            if (next + LENGTH_SIZE <= buffer.capacity()) {
+                // end marker - separates the records from those of a previous use of the segment
+                buffer.putInt(next, 0);
+            }
+
+            // the record is valid as soon as its length is written
+            buffer.putInt(writePosition, length);
+            writePosition = next;
+            count++;
+        }
+
+        /**
+         * The length of the next record that hasn't been replayed - skipping replayed records.
+         *
+         * @return the length of the next message.
+         */
+        int nextLength() {
+            int length = buffer.getInt(readPosition);
+            while (length < 0) {
+                readPosition += HEADER_SIZE - length;
+                length = buffer.getInt(readPosition);
+            }
+            return length;
+        }
+
+        /**
+         * Copies the next message into the given buffer - or into a new one if it is too small.
+         *
+         * @param dst the buffer to copy the message into.
+         * @return the buffer that contains the message.
+         */
+        byte[] read(final byte[] dst) {
+            final int length = nextLength();
+            final byte[] target = dst.length >= length ? dst : new byte[length];
+            buffer.get(readPosition + HEADER_SIZE, target, 0, length);
+            return target;
+        }
+
+        void markConsumed() {
+            final int length = nextLength();
+            buffer.putInt(readPosition, -length);
+            readPosition += HEADER_SIZE + length;
+            count--;
+        }
+
+        int remaining() {
+            return count;
+        }
+
+        boolean isConsumed() {
+            return count == 0;
+        }
+
+        void reset() {
+            writePosition = 0;
+            readPosition = 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.StackTraceElementProxy;
+
+/**
+ * LRU cache of rendered stack traces - JSON escaped and UTF-8 encoded. The same exception (same
+ * class, message and frames) is often logged over and over again while a system is degraded;
+ * rendering and escaping its stack trace only once saves CPU when it is needed most.
+ * <p>
+ * Entries are keyed by a 64-bit {@link #fingerprint(IThrowableProxy) fingerprint} of the whole
+ * throwable chain (including causes and suppressed throwables). As the fingerprint is built from
+ * hash codes, a hit is only served after verifying class names, messages and frames of the whole
+ * chain - a fingerprint collision is treated as a miss and never results in a wrong stack trace.
+ * <p>
+ * The cache is split into stripes (selected by the fingerprint), each with its own lock, so
+ * concurrent logging of exceptions doesn't contend on a single lock. Small caches are not striped.
+ */
+final class StackTraceCache {
+
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int MAX_STRIPES = 16;
+    private static final int MIN_STRIPE_CAPACITY = 16;
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    StackTraceCache(final int capacity) {
+        final int stripeCount = Math.min(MAX_STRIPES,
+            Math.max(1, Integer.highestOneBit(capacity / MIN_STRIPE_CAPACITY)));
+        final int stripeCapacity = (capacity + stripeCount - 1) / stripeCount;
+
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+        mask = stripeCount - 1;
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the cached stack trace of the given throwable or renders (and caches) it.
+     *
+     * @param throwableProxy the throwable.
+     * @param renderer renders the escaped stack trace of the throwable if it isn't cached.
+     * @return the escaped stack trace.
+     */
+    byte[] computeIfAbsent(final IThrowableProxy throwableProxy, final Supplier<byte[]> renderer) {
+        final long fingerprint = fingerprint(throwableProxy);
+        final Stripe stripe = stripes[(int) fingerprint & mask];
+
+        final Entry cached;
+        synchronized (stripe) {
+            cached = stripe.get(fingerprint);
+        }
+        if (cached != null && cached.throwable.matches(throwableProxy)) {
+            hits.increment();
+            return cached.stackTrace;
+        }
+
+        misses.increment();
+
+        // render outside the lock - concurrent renderings of the same throwable are harmless
+        final byte[] stackTrace = renderer.get();
+        final Entry entry = new Entry(new ThrowableIdentity(throwableProxy), stackTrace);
+        synchronized (stripe) {
+            stripe.put(fingerprint, entry);
+        }
+        return stackTrace;
+    }
+
+    /**
+     * Calculates a fingerprint of the throwable chain from everything that is rendered: class names,
+     * messages and frames of the throwable, its cause and suppressed throwables. Only (cached)
+     * hash codes are used - the fingerprint is cheap compared to rendering the stack trace.
+     *
+     * @param throwableProxy the throwable.
+     * @return the fingerprint.
+     */
+    static long fingerprint(final IThrowableProxy throwableProxy) {
+        return mix(hash(0, throwableProxy));
+    }
+
+    private static long hash(final long seed, final IThrowableProxy throwableProxy) {
+        long h = combine(seed, Objects.hashCode(throwableProxy.getClassName()));
+        h = combine(h, Objects.hashCode(throwableProxy.getMessage()));
+        h = combine(h, throwableProxy.getCommonFrames());
+
+        final StackTraceElementProxy[] frames = throwableProxy.getStackTraceElementProxyArray();
+        h = combine(h, frames.length);
+        for (final StackTraceElementProxy frame : frames) {
+            h = combine(h, frame.getStackTraceElement().hashCode());
+        }
+
+        final IThrowableProxy[] suppressed = throwableProxy.getSuppressed();
+        if (suppressed != null) {
+            h = combine(h, suppressed.length);
+            for (final IThrowableProxy s : suppressed) {
+                h = hash(h, s);
+            }
+        }
+
+        final IThrowableProxy cause = throwableProxy.getCause();
+        return cause != null ? hash(combine(h, 1), cause) : h;
+    }
+
+    private static long combine(final long h, final int value) {
+        return (h + value) * MULTIPLIER;
+    }
+
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static long mix(final long h) {
+        final long x = (h ^ h >>> 33) * 0xFF51AFD7ED558CCDL;
+        return x ^ x >>> 33;
+    }
+
+    @Override
+    public String toString() {
+        return "StackTraceCache{hits=" + getHits() + ", misses=" + getMisses() + '}';
+    }
+
+    /**
+     * One stripe of the cache - a LRU map that has to be locked on access.
+     */
+    @SuppressWarnings({"serial", "checkstyle:MagicNumber"})
+    private static final class Stripe extends LinkedHashMap<Long, Entry> {
+
+        private final int capacity;
+
+        Stripe(final int capacity) {
+            super(16, 0.75F, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, Entry> eldest) {
+            return size() > capacity;
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final ThrowableIdentity throwable;
+        private final byte[] stackTrace;
+
+        Entry(final ThrowableIdentity throwable, final byte[] stackTrace) {
+            this.throwable = throwable;
+            this.stackTrace = stackTrace;
+        }
+
+    }
+
+    /**
+     * Everything of a throwable (and its cause and suppressed throwables) that is rendered - to
+     * verify that a cached stack trace really belongs to a throwable. The throwable itself is not
+     * retained.
+     */
+    private static final class ThrowableIdentity {
+
+        private static final ThrowableIdentity[] NO_SUPPRESSED = new ThrowableIdentity[0];
+
+        private final String className;
+        private final String message;
+        private final int commonFrames;
+        private final StackTraceElement[] frames;
+        private final ThrowableIdentity[] suppressed;
+        private final ThrowableIdentity cause;
+
+        ThrowableIdentity(final IThrowableProxy throwableProxy) {
+            className = throwableProxy.getClassName();
+            message = throwableProxy.getMessage();
+            commonFrames = throwableProxy.getCommonFrames();
+
+            final StackTraceElementProxy[] frameProxies = throwableProxy.getStackTraceElementProxyArray();
+            frames = new StackTraceElement[frameProxies.length];
+            for (int i = 0; i < frames.length; i++) {
+                frames[i] = frameProxies[i].getStackTraceElement();
+            }
+
+            final IThrowableProxy[] suppressedProxies = throwableProxy.getSuppressed();
+            if (suppressedProxies == null || suppressedProxies.length == 0) {
+                suppressed = NO_SUPPRESSED;
+            } else {
+                suppressed = new ThrowableIdentity[suppressedProxies.length];
+                for (int i = 0; i < suppressed.length; i++) {
+                    suppressed[i] = new ThrowableIdentity(suppressedProxies[i]);
+                }
+            }
+
+            final IThrowableProxy causeProxy = throwableProxy.getCause();
+            cause = causeProxy != null ? new ThrowableIdentity(causeProxy) : null;
+        }
+
+        @SuppressWarnings("checkstyle:BooleanExpressionComplexity")
+        boolean matches(final IThrowableProxy throwableProxy) {
+            return Objects.equals(className, throwableProxy.getClassName())
+                && Objects.equals(message, throwableProxy.getMessage())
+                && commonFrames == throwableProxy.getCommonFrames()
+                && framesMatch(throwableProxy.getStackTraceElementProxyArray())
+                && suppressedMatch(throwableProxy.getSuppressed())
+                && causeMatches(throwableProxy.getCause());
+        }
+
+        private boolean framesMatch(final StackTraceElementProxy[] frameProxies) {
+            if (frames.length != frameProxies.length) {
+                return false;
+            }
+            for (int i = 0; i < frames.length; i++) {
+                if (!frames[i].equals(frameProxies[i].getStackTraceElement())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean suppressedMatch(final IThrowableProxy[] suppressedProxies) {
+            final int length = suppressedProxies != null ? suppressedProxies.length : 0;
+            if (suppressed.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (!suppressed[i].matches(suppressedProxies[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean causeMatches(final IThrowableProxy causeProxy) {
+            return cause == null ? causeProxy == null : causeProxy != null && cause.matches(causeProxy);
+        }
+
+    }
+
+}
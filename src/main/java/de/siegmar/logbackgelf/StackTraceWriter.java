@@ -0,0 +1,261 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.List;
+
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.StackTraceElementProxy;
+import ch.qos.logback.core.CoreConstants;
+
+/**
+ * Writes the stack trace of a throwable (in the format of {@code %ex}) line by line as escaped
+ * JSON string content directly into a buffer - without rendering it into a {@link String} first.
+ * <p>
+ * Unlike {@code %ex} it can:
+ * <ul>
+ *     <li>skip frames of classes with a given package prefix (e.g. {@code sun.reflect}) - consecutive
+ *     skipped frames are noted by {@code [n skipped]} on the next written frame</li>
+ *     <li>limit the number of frames written per throwable (and per cause)</li>
+ *     <li>limit the size (in bytes) of the escaped stack trace - the lines that exceed the limit are
+ *     replaced by {@value #TRUNCATION_MARKER}</li>
+ * </ul>
+ * Packaging data is not written.
+ */
+final class StackTraceWriter {
+
+    static final String TRUNCATION_MARKER = "[stack trace truncated]";
+
+    private static final byte[] ESCAPED_TRUNCATION_MARKER =
+        Utf8JsonEncoder.escape(TRUNCATION_MARKER + CoreConstants.LINE_SEPARATOR);
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private final List<String> excludedPackages;
+    private final int maxDepth;
+    private final int maxBytes;
+
+    /**
+     * Creates a writer.
+     *
+     * @param excludedPackages package prefixes of frames to skip.
+     * @param maxDepth the maximum number of frames written per throwable - 0 for no limit.
+     * @param maxBytes the maximum number of bytes written (including the truncation marker) - 0 for no limit.
+     */
+    StackTraceWriter(final List<String> excludedPackages, final int maxDepth, final int maxBytes) {
+        this.excludedPackages = List.copyOf(excludedPackages);
+        this.maxDepth = maxDepth;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Writes the stack trace as escaped, UTF-8 encoded JSON string content (without quotes).
+     *
+     * @param throwableProxy the throwable.
+     * @param buf the buffer to write to.
+     */
+    void write(final IThrowableProxy throwableProxy, final ByteArrayBuffer buf) {
+        new Writer(buf, null).write(throwableProxy);
+    }
+
+    /**
+     * Renders the stack trace as escaped, UTF-8 encoded JSON string content (without quotes).
+     *
+     * @param throwableProxy the throwable.
+     * @return the escaped stack trace.
+     */
+    byte[] toEscapedBytes(final IThrowableProxy throwableProxy) {
+        final ByteArrayBuffer buf = new ByteArrayBuffer(INITIAL_BUFFER_SIZE);
+        write(throwableProxy, buf);
+        return buf.toByteArray();
+    }
+
+    /**
+     * Renders the stack trace as (unescaped) string - truncated like the escaped output.
+     *
+     * @param throwableProxy the throwable.
+     * @return the stack trace.
+     */
+    String toString(final IThrowableProxy throwableProxy) {
+        final StringBuilder sb = new StringBuilder(INITIAL_BUFFER_SIZE);
+        new Writer(new ByteArrayBuffer(INITIAL_BUFFER_SIZE), sb).write(throwableProxy);
+        return sb.toString();
+    }
+
+    private boolean isExcluded(final String className) {
+        for (final String excludedPackage : excludedPackages) {
+            if (className.startsWith(excludedPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * State of writing one stack trace.
+     */
+    private final class Writer {
+
+        private final ByteArrayBuffer buf;
+        private final int start;
+
+        /**
+         * Receives the unescaped lines - {@code null} if only escaped output is required.
+         */
+        private final StringBuilder plain;
+
+        private final StringBuilder line = new StringBuilder();
+
+        Writer(final ByteArrayBuffer buf, final StringBuilder plain) {
+            this.buf = buf;
+            this.start = buf.size();
+            this.plain = plain;
+        }
+
+        void write(final IThrowableProxy throwableProxy) {
+            writeThrowable(null, 1, throwableProxy);
+        }
+
+        /**
+         * Writes the throwable, its suppressed throwables and its causes.
+         *
+         * @return {@code false} if the output has been truncated.
+         */
+        private boolean writeThrowable(final String prefix, final int indent, final IThrowableProxy throwableProxy) {
+            indent(indent - 1);
+            if (prefix != null) {
+                line.append(prefix);
+            }
+            // like ThrowableProxyUtil - a null message is written as "null"
+            line.append(throwableProxy.getClassName()).append(": ").append(throwableProxy.getMessage());
+            if (!flushLine() || !writeFrames(indent, throwableProxy)) {
+                return false;
+            }
+
+            final IThrowableProxy[] suppressed = throwableProxy.getSuppressed();
+            if (suppressed != null) {
+                for (final IThrowableProxy s : suppressed) {
+                    if (!writeThrowable(CoreConstants.SUPPRESSED, indent + 1, s)) {
+                        return false;
+                    }
+                }
+            }
+
+            final IThrowableProxy cause = throwableProxy.getCause();
+            return cause == null || writeThrowable(CoreConstants.CAUSED_BY, indent, cause);
+        }
+
+        @SuppressWarnings("checkstyle:ReturnCount")
+        private boolean writeFrames(final int indent, final IThrowableProxy throwableProxy) {
+            final StackTraceElementProxy[] frames = throwableProxy.getStackTraceElementProxyArray();
+            final int commonFrames = throwableProxy.getCommonFrames();
+            final int frameCount = frames.length - commonFrames;
+
+            int written = 0;
+            int skipped = 0;
+            for (int i = 0; i < frameCount; i++) {
+                final StackTraceElementProxy frame = frames[i];
+                if (isExcluded(frame.getStackTraceElement().getClassName())) {
+                    skipped++;
+                    continue;
+                }
+
+                if (maxDepth > 0 && written == maxDepth) {
+                    // the excluded frames just before the cutoff are omitted as well
+                    indent(indent);
+                    line.append("... ").append(frameCount - i + skipped).append(" frames omitted");
+                    skipped = 0;
+                    if (!flushLine()) {
+                        return false;
+                    }
+                    break;
+                }
+
+                indent(indent);
+                line.append(frame.getSTEAsString());
+                appendSkipped(skipped);
+                skipped = 0;
+                written++;
+                if (!flushLine()) {
+                    return false;
+                }
+            }
+
+            if (skipped > 0) {
+                indent(indent);
+                line.append("...");
+                appendSkipped(skipped);
+                if (!flushLine()) {
+                    return false;
+                }
+            }
+
+            if (commonFrames > 0) {
+                indent(indent);
+                line.append("... ").append(commonFrames).append(" common frames omitted");
+                return flushLine();
+            }
+
+            return true;
+        }
+
+        private void indent(final int indent) {
+            for (int i = 0; i < indent; i++) {
+                line.append(CoreConstants.TAB);
+            }
+        }
+
+        private void appendSkipped(final int skipped) {
+            if (skipped > 0) {
+                line.append(" [").append(skipped).append(" skipped]");
+            }
+        }
+
+        /**
+         * Writes the current line - or the truncation marker if the line exceeds the byte limit.
+         *
+         * @return {@code false} if the output has been truncated.
+         */
+        private boolean flushLine() {
+            line.append(CoreConstants.LINE_SEPARATOR);
+
+            // escaped straight from the line buffer - without a String copy per line
+            final int lineStart = buf.size();
+            Utf8JsonEncoder.escape(buf, line);
+            if (maxBytes > 0 && buf.size() - start > maxBytes - ESCAPED_TRUNCATION_MARKER.length) {
+                line.setLength(0);
+                buf.size(lineStart);
+                buf.write(ESCAPED_TRUNCATION_MARKER);
+                if (plain != null) {
+                    plain.append(TRUNCATION_MARKER).append(CoreConstants.LINE_SEPARATOR);
+                }
+                return false;
+            }
+
+            if (plain != null) {
+                plain.append(line);
+            }
+            line.setLength(0);
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,277 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * {@link GelfFieldSink} that validates fields and appends them straight to the encoded message.
+ * Instances are pooled and reused - one instance encodes one message at a time.
+ */
+final class StreamingFieldSink implements GelfFieldSink {
+
+    private static final int FRAGMENT_BUFFER_SIZE = 64;
+
+    private final GelfEncoder encoder;
+    private final ByteArrayBuffer buffer;
+    private final FieldNameSet fieldNames;
+
+    private Utf8JsonEncoder jsonEncoder;
+
+    /**
+     * The field name of the fixed name mapper that currently streams its fields - it has already been
+     * validated by {@link FieldMapperPlan}.
+     */
+    private String trustedFieldName;
+
+    /**
+     * Adapter for {@link GelfFieldMapper#mapField} - created once instead of per call.
+     */
+    private final BiConsumer<String, Object> valueHandler = this::accept;
+
+    StreamingFieldSink(final GelfEncoder encoder, final Collection<String> staticFieldNames,
+                       final int initialBufferSize) {
+        this.encoder = encoder;
+        this.buffer = new ByteArrayBuffer(initialBufferSize);
+        this.fieldNames = new FieldNameSet(staticFieldNames);
+    }
+
+    /**
+     * The buffer the message is written to.
+     *
+     * @return the buffer owned by this sink.
+     */
+    ByteArrayBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * The value handler that adds fields to this sink.
+     *
+     * @return the value handler.
+     */
+    BiConsumer<String, Object> valueHandler() {
+        return valueHandler;
+    }
+
+    /**
+     * Starts collecting the additional fields of a message.
+     *
+     * @param encoder the encoder of the message that has already been written up to the additional fields.
+     */
+    void begin(final Utf8JsonEncoder encoder) {
+        jsonEncoder = encoder;
+        fieldNames.clear();
+    }
+
+    /**
+     * Sets the field name that doesn't need to be validated (again) until it is reset. The check for
+     * duplicate field names is still performed.
+     *
+     * @param fieldName the already validated field name - {@code null} to validate all field names.
+     */
+    void trustFieldName(final String fieldName) {
+        trustedFieldName = fieldName;
+    }
+
+    /**
+     * Resets this sink for reuse.
+     *
+     * @param maxRetainedBufferSize the maximum buffer capacity that is retained.
+     * @return {@code true} if this sink may be reused, {@code false} if its buffer is too large.
+     */
+    boolean recycle(final int maxRetainedBufferSize) {
+        jsonEncoder = null;
+        trustedFieldName = null;
+        fieldNames.clear();
+        buffer.reset();
+        return buffer.capacity() <= maxRetainedBufferSize;
+    }
+
+    @Override
+    public void accept(final String fieldName, final Object value) {
+        if (value == null) {
+            // validate anyway - to report invalid field names even if the value is missing
+            isValidFieldName(fieldName);
+        } else if (addFieldName(fieldName)) {
+            appendField(fieldName, value);
+        }
+    }
+
+    @Override
+    public void acceptLong(final String fieldName, final long value) {
+        if (addFieldName(fieldName)) {
+            jsonEncoder.appendToJSON('_', fieldName, value);
+        }
+    }
+
+    @Override
+    public void acceptDouble(final String fieldName, final double value) {
+        if (addFieldName(fieldName)) {
+            jsonEncoder.appendToJSON('_', fieldName, value);
+        }
+    }
+
+    @Override
+    public void acceptBoolean(final String fieldName, final boolean value) {
+        if (addFieldName(fieldName)) {
+            jsonEncoder.appendToJSON('_', fieldName, value);
+        }
+    }
+
+    @Override
+    public void acceptBytes(final String fieldName, final byte[] value) {
+        if (value == null || !isVerbatimString(value)) {
+            GelfFieldSink.super.acceptBytes(fieldName, value);
+        } else if (addFieldName(fieldName)) {
+            jsonEncoder.appendToJSON('_', fieldName, value);
+        }
+    }
+
+    /**
+     * Checks if the given UTF-8 encoded value can be written without decoding it: it only contains
+     * ASCII characters and is not subject to number detection.
+     */
+    private boolean isVerbatimString(final byte[] value) {
+        for (final byte b : value) {
+            if (b < 0) {
+                return false;
+            }
+        }
+        return value.length == 0 || encoder.isNumbersAsString() || !mayStartNumber(value[0]);
+    }
+
+    /**
+     * Checks if a string starting with the given (ASCII) character may be classified as number
+     * by {@link NumberScanner}.
+     */
+    private static boolean mayStartNumber(final byte b) {
+        return b >= '0' && b <= '9' || b == '-' || b == '+' || b == '.';
+    }
+
+    private boolean isValidFieldName(final String fieldName) {
+        if (trustedFieldName != null && trustedFieldName.equals(fieldName)) {
+            return true;
+        }
+        try {
+            encoder.validateFieldName(fieldName);
+            return true;
+        } catch (final IllegalArgumentException e) {
+            encoder.addWarn("Could not add field " + fieldName, e);
+            return false;
+        }
+    }
+
+    /**
+     * Validates the field name and checks that it hasn't been added before.
+     *
+     * @return {@code true} if the field may be added - otherwise a warning has been issued.
+     */
+    private boolean addFieldName(final String fieldName) {
+        if (!isValidFieldName(fieldName)) {
+            return false;
+        }
+        if (!fieldNames.add(fieldName)) {
+            encoder.addWarn("Could not add field " + fieldName, new IllegalArgumentException(
+                "Field mapper tried to set already defined key '" + fieldName + "'."));
+            return false;
+        }
+        return true;
+    }
+
+    private void appendField(final String fieldName, final Object value) {
+        appendField(jsonEncoder, fieldName, value);
+    }
+
+    private void appendField(final Utf8JsonEncoder target, final String fieldName, final Object value) {
+        if (value instanceof String && !encoder.isNumbersAsString()) {
+            final String str = (String) value;
+            final NumberScanner.Result number = NumberScanner.scan(str);
+            if (number == NumberScanner.Result.CANONICAL) {
+                target.appendToJSONUnquoted('_', fieldName, str);
+                return;
+            }
+            if (number == NumberScanner.Result.NONE) {
+                target.appendToJSON('_', fieldName, str);
+                return;
+            }
+        }
+
+        target.appendToJSON('_', fieldName, encoder.convertToNumberIfNeeded(value));
+    }
+
+    @Override
+    public void accept(final GelfFieldFragment fragment) {
+        if (!fragment.isSerializedFor(encoder.isNumbersAsString())) {
+            fragment.replay(this);
+            return;
+        }
+
+        final String[] names = fragment.serializedFieldNames();
+        for (final String name : names) {
+            if (fieldNames.contains(name)) {
+                // let the duplicate field be rejected (and reported) the regular way
+                fragment.replay(this);
+                return;
+            }
+        }
+        for (final String name : names) {
+            fieldNames.add(name);
+        }
+
+        jsonEncoder.appendFragment(fragment.json());
+    }
+
+    @Override
+    public GelfFieldFragment serialize(final Consumer<GelfFieldSink> fields) {
+        final GelfFieldFragment collected = GelfFieldFragment.collect(fields);
+        final String[] names = collected.fieldNames();
+        final Object[] values = collected.values();
+
+        final Set<String> serializedNames = new LinkedHashSet<>();
+        final ByteArrayBuffer buf = new ByteArrayBuffer(FRAGMENT_BUFFER_SIZE);
+        final Utf8JsonEncoder fragmentEncoder = new Utf8JsonEncoder(buf);
+        for (int i = 0; i < names.length; i++) {
+            try {
+                encoder.validateFieldName(names[i]);
+            } catch (final IllegalArgumentException e) {
+                // keep unserialized - the warning has to be issued whenever the fragment is used
+                return collected;
+            }
+            if (values[i] != null) {
+                if (!serializedNames.add(names[i])) {
+                    return collected;
+                }
+                appendField(fragmentEncoder, names[i], values[i]);
+            }
+        }
+
+        // skip the opening curly brace
+        final byte[] json = Arrays.copyOfRange(buf.array(), 1, buf.size());
+        return new GelfFieldFragment(names, values, serializedNames.toArray(new String[0]), json,
+            encoder.isNumbersAsString());
+    }
+
+}
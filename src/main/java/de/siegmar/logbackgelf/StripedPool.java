@@ -0,0 +1,120 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free pool of reusable objects like {@link ByteArrayBuffer} instances.
+ * <p>
+ * Objects are kept in a striped array of slots (indexed by the id of the borrowing thread) rather
+ * than in a {@link ThreadLocal}. The number of retained objects is therefore bounded by the number
+ * of slots - independent of the number of (virtual) threads. Objects that are rejected by the
+ * recycler (e.g. buffers that grew too large) are not returned to the pool, so a single huge
+ * message doesn't pin its memory forever.
+ *
+ * @param <T> the type of pooled objects.
+ */
+final class StripedPool<T> {
+
+    private static final int SLOTS_PER_PROCESSOR = 2;
+    private static final int PROBES = 2;
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final Supplier<? extends T> factory;
+    private final Predicate<? super T> recycler;
+
+    /**
+     * Creates a pool.
+     *
+     * @param factory creates new objects if no pooled object is available.
+     * @param recycler resets an object on release and returns {@code false} if it must not be reused.
+     */
+    StripedPool(final Supplier<? extends T> factory, final Predicate<? super T> recycler) {
+        final int slotCount = nextPowerOfTwo(Runtime.getRuntime().availableProcessors() * SLOTS_PER_PROCESSOR);
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.mask = slotCount - 1;
+        this.factory = factory;
+        this.recycler = recycler;
+    }
+
+    /**
+     * Creates a pool of {@link ByteArrayBuffer} instances.
+     *
+     * @param initialSize the initial size of new buffers.
+     * @param maxRetainedSize the maximum capacity of buffers that are returned to the pool.
+     * @return the new pool.
+     */
+    static StripedPool<ByteArrayBuffer> ofBuffers(final int initialSize, final int maxRetainedSize) {
+        return new StripedPool<>(() -> new ByteArrayBuffer(initialSize), buf -> {
+            buf.reset();
+            return buf.capacity() <= maxRetainedSize;
+        });
+    }
+
+    private static int nextPowerOfTwo(final int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Borrows an object from the pool or creates a new one, if no pooled object is available.
+     *
+     * @return an object that has to be returned via {@link #release(Object)}.
+     */
+    T borrow() {
+        final int start = slotIndex();
+        for (int i = 0; i < PROBES; i++) {
+            final T obj = slots.getAndSet((start + i) & mask, null);
+            if (obj != null) {
+                return obj;
+            }
+        }
+
+        return factory.get();
+    }
+
+    /**
+     * Returns an object to the pool. Objects rejected by the recycler are discarded.
+     *
+     * @param obj the object to return.
+     */
+    void release(final T obj) {
+        if (!recycler.test(obj)) {
+            return;
+        }
+
+        final int start = slotIndex();
+        for (int i = 0; i < PROBES; i++) {
+            if (slots.compareAndSet((start + i) & mask, null, obj)) {
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("checkstyle:magicnumber")
+    private int slotIndex() {
+        final long id = Thread.currentThread().getId();
+        return (int) (id ^ id >>> 16) & mask;
+    }
+
+}
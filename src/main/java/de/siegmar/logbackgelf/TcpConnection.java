@@ -52,11 +52,15 @@ public class TcpConnection extends BasePooledObject {
     }
 
     public void write(final byte[] messageToSend) throws IOException {
+        write(messageToSend, 0, messageToSend.length);
+    }
+
+    public void write(final byte[] messageToSend, final int offset, final int length) throws IOException {
         if (outputStream == null) {
             connect();
         }
 
-        outputStream.write(messageToSend);
+        outputStream.write(messageToSend, offset, length);
 
         // GELF via TCP requires 0 termination
         outputStream.write(0);
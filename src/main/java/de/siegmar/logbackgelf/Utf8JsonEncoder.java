@@ -0,0 +1,683 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.io.Closeable;
+import java.util.function.Consumer;
+
+/**
+ * Byte oriented sibling of {@link SimpleJsonEncoder} that writes UTF-8 encoded JSON directly into a
+ * {@link ByteArrayBuffer} - without the detour via {@link StringBuilder} and {@link String}.
+ */
+class Utf8JsonEncoder implements Closeable {
+
+    private static final byte QUOTE = '"';
+    private static final byte[] HEX_DIGITS = {
+        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+
+    /**
+     * Maximum number of bytes a single char can be expanded to (&#92;uXXXX).
+     */
+    private static final int MAX_BYTES_PER_CHAR = 6;
+
+    /**
+     * Integral doubles below this limit are rendered without exponent by {@link Double#toString(double)}.
+     */
+    private static final double MAX_PLAIN_DOUBLE = 1e7;
+
+    private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0);
+
+    private static final byte[] QUOTED_TRUE = {'"', 't', 'r', 'u', 'e', '"'};
+    private static final byte[] QUOTED_FALSE = {'"', 'f', 'a', 'l', 's', 'e', '"'};
+
+    /**
+     * Replacement for malformed surrogates - same as used by {@link String#getBytes(java.nio.charset.Charset)}.
+     */
+    private static final byte MALFORMED_REPLACEMENT = '?';
+
+    /**
+     * Minimum length of strings that are scanned by the vectorized {@link EscapeScanner} (if
+     * available) - shorter ones don't amortize copying them chunk-wise to a char array.
+     */
+    private static final int VECTOR_MIN_LENGTH = 256;
+
+    /**
+     * Size of the first chunk copied for the vectorized scan - doubled for each further chunk of
+     * the same run, up to {@link #VECTOR_CHUNK_SIZE}. Keeps the copying small for short runs (like
+     * the lines of a stack trace).
+     */
+    private static final int VECTOR_MIN_CHUNK_SIZE = 64;
+    private static final int VECTOR_CHUNK_SIZE = 1024;
+
+    private static final StripedPool<char[]> CHUNK_POOL =
+        new StripedPool<>(() -> new char[VECTOR_CHUNK_SIZE], chunk -> true);
+
+    /**
+     * Wrapped buffer.
+     */
+    private final ByteArrayBuffer buf;
+
+    /**
+     * Flag to determine if a comma has to be added on next append execution.
+     */
+    private boolean started;
+
+    /**
+     * Flag set when JSON object is closed by curly brace.
+     */
+    private boolean closed;
+
+    Utf8JsonEncoder(final ByteArrayBuffer buf) {
+        this.buf = buf;
+        buf.write('{');
+    }
+
+    /**
+     * Creates an encoder that continues a JSON object with the given pre-serialized header.
+     *
+     * @param buf the buffer to write to.
+     * @param header the opening curly brace followed by at least one field - as written by an
+     *     unclosed encoder.
+     */
+    Utf8JsonEncoder(final ByteArrayBuffer buf, final byte[] header) {
+        this.buf = buf;
+        buf.write(header);
+        started = true;
+    }
+
+    /**
+     * Append field with quotes and escape characters added, if required.
+     *
+     * @return this
+     */
+    Utf8JsonEncoder appendToJSON(final String key, final Object value) {
+        if (closed) {
+            throw new IllegalStateException("Encoder already closed");
+        }
+        if (value != null) {
+            appendKey(key);
+            appendValue(value);
+        }
+        return this;
+    }
+
+    private void appendValue(final Object value) {
+        if (value instanceof Number && !isNonFinite((Number) value)) {
+            writeUnescaped(value.toString());
+        } else {
+            buf.write(QUOTE);
+            escapeString(value.toString());
+            buf.write(QUOTE);
+        }
+    }
+
+    /**
+     * Append string field whose value is the concatenation of {@code value} and a suffix that is
+     * written (escaped and UTF-8 encoded) by {@code escapedSuffixWriter}.
+     *
+     * @return this
+     */
+    Utf8JsonEncoder appendToJSON(final String key, final String value,
+                                 final Consumer<ByteArrayBuffer> escapedSuffixWriter) {
+        if (closed) {
+            throw new IllegalStateException("Encoder already closed");
+        }
+        appendKey(key);
+        buf.write(QUOTE);
+        escapeString(value);
+        escapedSuffixWriter.accept(buf);
+        buf.write(QUOTE);
+        return this;
+    }
+
+    /**
+     * Escapes the given string like string values are escaped by this encoder and encodes it as UTF-8.
+     *
+     * @param str string to be escaped.
+     * @return the escaped string without surrounding quotes.
+     */
+    static byte[] escape(final String str) {
+        final ByteArrayBuffer buf = new ByteArrayBuffer(str.length());
+        escape(buf, str);
+        return buf.toByteArray();
+    }
+
+    /**
+     * Escapes the given chars like string values are escaped by this encoder and writes them UTF-8
+     * encoded to the buffer (without surrounding quotes) - e.g. the content of a {@link StringBuilder},
+     * without converting it to a {@link String} first.
+     *
+     * @param buf the buffer to write to.
+     * @param str chars to be escaped.
+     */
+    static void escape(final ByteArrayBuffer buf, final CharSequence str) {
+        writeString(buf, str, true);
+    }
+
+    /**
+     * Escapes the given string like {@link #escape(ByteArrayBuffer, String)} - using the given
+     * scanner, independent of the length of the string.
+     *
+     * @param buf the buffer to write to.
+     * @param str string to be escaped.
+     * @param scanner the scanner to find the end of runs that don't need escaping with -
+     *     {@code null} to scan char by char.
+     */
+    static void escape(final ByteArrayBuffer buf, final CharSequence str, final EscapeScanner scanner) {
+        if (scanner == null) {
+            writeString(buf, str, true, null, null);
+            return;
+        }
+
+        final char[] chunk = CHUNK_POOL.borrow();
+        try {
+            writeString(buf, str, true, scanner, chunk);
+        } finally {
+            CHUNK_POOL.release(chunk);
+        }
+    }
+
+    private static boolean isNonFinite(final Number value) {
+        return value instanceof Double && !Double.isFinite((Double) value)
+            || value instanceof Float && !Float.isFinite((Float) value);
+    }
+
+    /**
+     * Append field with quotes and escape characters added, if required. The key is prefixed
+     * by {@code keyPrefix} - this saves the concatenation of prefix and key. The prefix has to be
+     * an ASCII character that doesn't require escaping.
+     *
+     * @return this
+     */
+    Utf8JsonEncoder appendToJSON(final char keyPrefix, final String key, final Object value) {
+        if (closed) {
+            throw new IllegalStateException("Encoder already closed");
+        }
+        if (value != null) {
+            appendKey(keyPrefix, key);
+            appendValue(value);
+        }
+        return this;
+    }
+
+    /**
+     * Append field with quotes and escape characters added in the key, if required.
+     * The value is added without quotes and any escape characters.
+     *
+     * @return this
+     */
+    Utf8JsonEncoder appendToJSONUnquoted(final String key, final Object value) {
+        if (closed) {
+            throw new IllegalStateException("Encoder already closed");
+        }
+        if (value != null) {
+            appendKey(key);
+            writeUnescaped(value.toString());
+        }
+        return this;
+    }
+
+    /**
+     * Append field with quotes and escape characters added in the key, if required.
+     * The value is added without quotes and any escape characters. The key is prefixed
+     * by {@code keyPrefix} - see {@link #appendToJSON(char, String, Object)}.
+     *
+     * @return this
+     */
+    Utf8JsonEncoder appendToJSONUnquoted(final char keyPrefix, final String key, final Object value) {
+        if (closed) {
+            throw new IllegalStateException("Encoder already closed");
+        }
+        if (value != null) {
+            appendKey(keyPrefix, key);
+            writeUnescaped(value.toString());
+        }
+        return this;
+    }
+
+    /**
+     * Append numeric field without quotes - without boxing the value or converting it to a String.
+     * The key is prefixed by {@code keyPrefix} - see {@link #appendToJSON(char, String, Object)}.
+     *
+     * @return this
+     */
+    Utf8JsonEncoder appendToJSON(final char keyPrefix, final String key, final long value) {
+        if (closed) {
+            throw new IllegalStateException("Encoder already closed");
+        }
+        appendKey(keyPrefix, key);
+        writeLong(value);
+        return this;
+    }
+
+    /**
+     * Append numeric field without quotes - without boxing the value. Integral values (the common
+     * case for durations, sizes and counts) are written without converting them to a String.
+     * NaN and infinite values are not supported by JSON and written as quoted string.
+     * The key is prefixed by {@code keyPrefix} - see {@link #appendToJSON(char, String, Object)}.
+     *
+     * @return this
+     */
+    Utf8JsonEncoder appendToJSON(final char keyPrefix, final String key, final double value) {
+        if (closed) {
+            throw new IllegalStateException("Encoder already closed");
+        }
+        appendKey(keyPrefix, key);
+        if (!Double.isFinite(value)) {
+            buf.write(QUOTE);
+            buf.writeAscii(Double.toString(value));
+            buf.write(QUOTE);
+        } else if (value == (long) value && Math.abs(value) < MAX_PLAIN_DOUBLE
+            && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO_BITS) {
+            // same notation as Double.toString()
+            writeLong((long) value);
+            buf.write('.');
+            buf.write('0');
+        } else {
+            buf.writeAscii(Double.toString(value));
+        }
+        return this;
+    }
+
+    /**
+     * Append boolean field - as quoted string, like {@link #appendToJSON(char, String, Object)}
+     * does for {@link Boolean} values.
+     *
+     * @return this
+     */
+    Utf8JsonEncoder appendToJSON(final char keyPrefix, final String key, final boolean value) {
+        if (closed) {
+            throw new IllegalStateException("Encoder already closed");
+        }
+        appendKey(keyPrefix, key);
+        buf.write(value ? QUOTED_TRUE : QUOTED_FALSE);
+        return this;
+    }
+
+    /**
+     * Append string field whose value is given as ASCII bytes - with quotes and escape characters
+     * added, if required. The key is prefixed by {@code keyPrefix} - see
+     * {@link #appendToJSON(char, String, Object)}.
+     *
+     * @param value the value - must only contain ASCII characters.
+     * @return this
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    Utf8JsonEncoder appendToJSON(final char keyPrefix, final String key, final byte[] value) {
+        if (closed) {
+            throw new IllegalStateException("Encoder already closed");
+        }
+        appendKey(keyPrefix, key);
+        buf.ensureCapacity(buf.size() + value.length + 2);
+        buf.write(QUOTE);
+        int runStart = 0;
+        for (int i = 0; i < value.length; i++) {
+            final char ch = (char) value[i];
+            if (SimpleJsonEncoder.requiresEscaping(ch)) {
+                buf.write(value, runStart, i - runStart);
+                buf.ensureCapacity(buf.size() + MAX_BYTES_PER_CHAR);
+                buf.size(escapeAscii(ch, buf.array(), buf.size()));
+                runStart = i + 1;
+            }
+        }
+        buf.write(value, runStart, value.length - runStart);
+        buf.write(QUOTE);
+        return this;
+    }
+
+    private void writeLong(final long value) {
+        if (value == Long.MIN_VALUE) {
+            buf.writeAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            buf.write('-');
+        }
+        buf.writeDigits(Math.abs(value), 1);
+    }
+
+    /**
+     * Append already serialized fields (comma separated, without surrounding braces).
+     *
+     * @param fragment the serialized fields - may be empty.
+     * @return this
+     */
+    Utf8JsonEncoder appendFragment(final byte[] fragment) {
+        if (closed) {
+            throw new IllegalStateException("Encoder already closed");
+        }
+        if (fragment.length > 0) {
+            if (started) {
+                buf.write(',');
+            } else {
+                started = true;
+            }
+            buf.write(fragment);
+        }
+        return this;
+    }
+
+    /**
+     * Append numeric field without quotes - without the need to convert the value to a String.
+     *
+     * @return this
+     */
+    Utf8JsonEncoder appendToJSONUnquoted(final String key, final int value) {
+        if (closed) {
+            throw new IllegalStateException("Encoder already closed");
+        }
+        appendKey(key);
+        if (value < 0) {
+            buf.write('-');
+        }
+        buf.writeDigits(Math.abs((long) value), 1);
+        return this;
+    }
+
+    /**
+     * Append a millisecond timestamp as seconds with three decimal places (e.g. 1584271169.123) -
+     * the notation used by GELF.
+     *
+     * @return this
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    Utf8JsonEncoder appendTimestamp(final String key, final long timestamp) {
+        if (closed) {
+            throw new IllegalStateException("Encoder already closed");
+        }
+        appendKey(key);
+
+        long seconds = timestamp / 1000;
+        long millis = timestamp % 1000;
+        if (timestamp < 0) {
+            buf.write('-');
+            seconds = -seconds;
+            millis = -millis;
+        }
+        buf.writeDigits(seconds, 1);
+        buf.write('.');
+        buf.writeDigits(millis, 3);
+        return this;
+    }
+
+    private void appendKey(final String key) {
+        if (started) {
+            buf.write(',');
+        } else {
+            started = true;
+        }
+        buf.write(QUOTE);
+        escapeString(key);
+        buf.write(QUOTE);
+        buf.write(':');
+    }
+
+    private void appendKey(final char keyPrefix, final String key) {
+        if (started) {
+            buf.write(',');
+        } else {
+            started = true;
+        }
+        buf.write(QUOTE);
+        buf.write(keyPrefix);
+        escapeString(key);
+        buf.write(QUOTE);
+        buf.write(':');
+    }
+
+    private void writeUnescaped(final String str) {
+        writeString(buf, str, false);
+    }
+
+    /**
+     * Escape characters in string, if required per RFC-7159 (JSON) and encode them as UTF-8.
+     *
+     * @param str string to be escaped.
+     */
+    private void escapeString(final String str) {
+        writeString(buf, str, true);
+    }
+
+    private static void writeString(final ByteArrayBuffer buf, final CharSequence str, final boolean escape) {
+        if (escape && str.length() >= VECTOR_MIN_LENGTH) {
+            escape(buf, str, EscapeScanners.VECTORIZED);
+        } else {
+            writeString(buf, str, escape, null, null);
+        }
+    }
+
+    /**
+     * Writes the string UTF-8 encoded - escaped, if requested.
+     *
+     * @param scanner the scanner to find the end of runs that don't need escaping with - only
+     *     used when escaping, {@code null} to scan char by char.
+     * @param chunk the array to copy chars to for the scanner.
+     */
+    @SuppressWarnings({
+        "checkstyle:cyclomaticcomplexity",
+        "checkstyle:magicnumber",
+        "checkstyle:innerassignment",
+        "PMD.AvoidLiteralsInIfCondition",
+        "PMD.AssignmentInOperand"
+    })
+    private static void writeString(final ByteArrayBuffer buf, final CharSequence str, final boolean escape,
+                                    final EscapeScanner scanner, final char[] chunk) {
+        final int len = str.length();
+        buf.ensureCapacity(buf.size() + len);
+        byte[] arr = buf.array();
+        int pos = buf.size();
+
+        for (int i = 0; i < len; i++) {
+            if (arr.length - pos < MAX_BYTES_PER_CHAR) {
+                buf.size(pos);
+                buf.ensureCapacity(pos + MAX_BYTES_PER_CHAR + len - i);
+                arr = buf.array();
+            }
+
+            final char ch = str.charAt(i);
+            if (ch < 0x80) {
+                if (!escape || !SimpleJsonEncoder.requiresEscaping(ch)) {
+                    final int runEnd = scanner != null
+                        ? vectorizedRunEnd(str, i + 1, scanner, chunk)
+                        : asciiRunEnd(str, i + 1, escape);
+                    if (arr.length - pos < runEnd - i) {
+                        buf.size(pos);
+                        buf.ensureCapacity(pos + MAX_BYTES_PER_CHAR + len - i);
+                        arr = buf.array();
+                    }
+                    copyAscii(str, i, runEnd, arr, pos);
+                    pos += runEnd - i;
+                    i = runEnd - 1;
+                    continue;
+                }
+                pos = escapeAscii(ch, arr, pos);
+            } else if (ch < 0x800) {
+                arr[pos++] = (byte) (0xC0 | ch >> 6);
+                arr[pos++] = (byte) (0x80 | ch & 0x3F);
+            } else if (!Character.isSurrogate(ch)) {
+                arr[pos++] = (byte) (0xE0 | ch >> 12);
+                arr[pos++] = (byte) (0x80 | ch >> 6 & 0x3F);
+                arr[pos++] = (byte) (0x80 | ch & 0x3F);
+            } else {
+                final int low = lowSurrogateIndex(str, i, escape);
+                if (Character.isHighSurrogate(ch) && low != -1) {
+                    final int cp = Character.toCodePoint(ch, str.charAt(low));
+                    arr[pos++] = (byte) (0xF0 | cp >> 18);
+                    arr[pos++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                    arr[pos++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                    arr[pos++] = (byte) (0x80 | cp & 0x3F);
+                    i = low;
+                } else {
+                    arr[pos++] = MALFORMED_REPLACEMENT;
+                }
+            }
+        }
+
+        buf.size(pos);
+    }
+
+    /**
+     * Writes the escape sequence of an ASCII character that requires escaping.
+     *
+     * @return the position after the escape sequence.
+     */
+    @SuppressWarnings({
+        "checkstyle:magicnumber",
+        "checkstyle:innerassignment",
+        "PMD.ImplicitSwitchFallThrough",
+        "PMD.AssignmentInOperand"
+    })
+    private static int escapeAscii(final char ch, final byte[] arr, final int offset) {
+        int pos = offset;
+        switch (ch) {
+            case '"':
+            case '\\':
+            case '/':
+                arr[pos++] = '\\';
+                arr[pos++] = (byte) ch;
+                break;
+            case '\b':
+                arr[pos++] = '\\';
+                arr[pos++] = 'b';
+                break;
+            case '\f':
+                arr[pos++] = '\\';
+                arr[pos++] = 'f';
+                break;
+            case '\n':
+                arr[pos++] = '\\';
+                arr[pos++] = 'n';
+                break;
+            case '\r':
+                // Graylog doesn't like carriage-return: https://github.com/Graylog2/graylog2-server/issues/4470
+                break;
+            case '\t':
+                arr[pos++] = '\\';
+                arr[pos++] = 't';
+                break;
+            default:
+                arr[pos++] = '\\';
+                arr[pos++] = 'u';
+                arr[pos++] = '0';
+                arr[pos++] = '0';
+                arr[pos++] = HEX_DIGITS[ch >> 4];
+                arr[pos++] = HEX_DIGITS[ch & 0xF];
+        }
+        return pos;
+    }
+
+    /**
+     * Finds the end of a run of ASCII characters that can be copied as they are.
+     *
+     * @return the index of the first character that is not part of the run.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static int asciiRunEnd(final CharSequence str, final int from, final boolean escape) {
+        int i = from;
+        while (i < str.length()) {
+            final char ch = str.charAt(i);
+            if (ch >= 0x80 || escape && SimpleJsonEncoder.requiresEscaping(ch)) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Finds the end of a run of ASCII characters that can be copied as they are - by copying the
+     * string chunk-wise to a char array that is scanned by the given scanner.
+     *
+     * @return the index of the first character that is not part of the run.
+     */
+    private static int vectorizedRunEnd(final CharSequence str, final int from, final EscapeScanner scanner,
+                                        final char[] chunk) {
+        final int len = str.length();
+        int chunkSize = VECTOR_MIN_CHUNK_SIZE;
+        int i = from;
+        while (i < len) {
+            final int count = Math.min(chunkSize, len - i);
+            getChars(str, i, i + count, chunk);
+            final int end = scanner.runEnd(chunk, 0, count);
+            if (end < count) {
+                return i + end;
+            }
+            i += count;
+            chunkSize = Math.min(chunk.length, chunkSize * 2);
+        }
+        return len;
+    }
+
+    /**
+     * Copies the chars of the given range to the start of {@code dst}.
+     */
+    private static void getChars(final CharSequence str, final int from, final int to, final char[] dst) {
+        if (str instanceof String) {
+            ((String) str).getChars(from, to, dst, 0);
+        } else if (str instanceof StringBuilder) {
+            ((StringBuilder) str).getChars(from, to, dst, 0);
+        } else {
+            for (int i = from; i < to; i++) {
+                dst[i - from] = str.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * Copies a run of ASCII characters. {@link String#getBytes(int, int, byte[], int)} is a plain array
+     * copy for Latin-1 (compact) strings - its only drawback, the loss of the high byte of each char,
+     * doesn't matter for ASCII.
+     */
+    @SuppressWarnings("deprecation")
+    private static void copyAscii(final CharSequence str, final int from, final int to, final byte[] dst,
+                                  final int dstPos) {
+        if (str instanceof String) {
+            ((String) str).getBytes(from, to, dst, dstPos);
+        } else {
+            for (int i = from; i < to; i++) {
+                dst[dstPos + i - from] = (byte) str.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * Finds the low surrogate that completes the high surrogate at {@code idx}. As carriage-returns
+     * are removed while escaping, they do not separate the surrogate pair.
+     *
+     * @return the index of the low surrogate or -1 if there is none.
+     */
+    private static int lowSurrogateIndex(final CharSequence str, final int idx, final boolean escape) {
+        int i = idx + 1;
+        while (escape && i < str.length() && str.charAt(i) == '\r') {
+            i++;
+        }
+        return i < str.length() && Character.isLowSurrogate(str.charAt(i)) ? i : -1;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            buf.write('}');
+            closed = true;
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Strategy of the sender thread of an asynchronous appender for waiting on new messages.
+ */
+public enum WaitStrategy {
+
+    /**
+     * Busy spin - lowest latency, but keeps one CPU core busy all the time.
+     */
+    SPIN {
+        @Override
+        void idle(final int idleCount) {
+            Thread.onSpinWait();
+        }
+    },
+
+    /**
+     * Spin shortly, then yield the CPU to other threads - low latency, but still consumes CPU
+     * time while idle.
+     */
+    YIELD {
+        @Override
+        void idle(final int idleCount) {
+            if (idleCount < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    },
+
+    /**
+     * Spin and yield shortly, then park the thread for {@value PARK_MILLIS} millisecond(s) - the
+     * CPU friendly default.
+     */
+    PARK {
+        @Override
+        void idle(final int idleCount) {
+            if (idleCount < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (idleCount < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(PARK_MILLIS));
+            }
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_MILLIS = 1;
+
+    /**
+     * Waits for new messages.
+     *
+     * @param idleCount the number of consecutive times the sender found no message.
+     */
+    abstract void idle(int idleCount);
+
+    /**
+     * Increments the idle count - saturating at {@link Integer#MAX_VALUE}. An overflow to a negative
+     * count (after weeks of idling) would make {@link #PARK} busy spin again.
+     *
+     * @param idleCount the current idle count.
+     * @return the incremented idle count.
+     */
+    static int nextIdleCount(final int idleCount) {
+        return idleCount < Integer.MAX_VALUE ? idleCount + 1 : idleCount;
+    }
+
+}
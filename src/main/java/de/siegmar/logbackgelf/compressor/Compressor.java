@@ -20,6 +20,7 @@
 package de.siegmar.logbackgelf.compressor;
 
 import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
@@ -36,6 +37,32 @@ public interface Compressor {
         return bos.toByteArray();
     }
 
+    /**
+     * Compresses a part of the given array and writes the result to {@code out}.
+     *
+     * @param message the array containing the message to compress
+     * @param offset the offset of the message within the array
+     * @param length the length of the message
+     * @param out the stream to write the compressed message to - it is not closed by this method
+     * @throws IOException if writing to {@code out} fails
+     */
+    default void compress(final byte[] message, final int offset, final int length, final OutputStream out)
+        throws IOException {
+        try (var wrappedOut = wrap(new FilterOutputStream(out) {
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        })) {
+            wrappedOut.write(message, offset, length);
+        }
+    }
+
     default OutputStream wrap(final OutputStream out) throws IOException {
         return out;
     }
@@ -24,6 +24,7 @@ import java.util.function.BiConsumer;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import de.siegmar.logbackgelf.GelfFieldMapper;
+import de.siegmar.logbackgelf.GelfFieldSink;
 
 public abstract class AbstractFixedNameFieldMapper<T> implements GelfFieldMapper<T> {
 
@@ -38,6 +39,23 @@ public abstract class AbstractFixedNameFieldMapper<T> implements GelfFieldMapper
         getValue(event).ifPresent(v -> valueHandler.accept(fieldName, v));
     }
 
+    @Override
+    public void streamField(final ILoggingEvent event, final GelfFieldSink sink) {
+        final Optional<T> value = getValue(event);
+        if (value.isPresent()) {
+            sink.accept(fieldName, value.get());
+        }
+    }
+
+    /**
+     * The name of the field mapped by this mapper.
+     *
+     * @return the field name (without the leading underscore).
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
     protected abstract Optional<T> getValue(ILoggingEvent event);
 
 }
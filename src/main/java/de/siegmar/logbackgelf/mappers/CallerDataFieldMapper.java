@@ -23,21 +23,66 @@ import java.util.Optional;
 import java.util.function.BiConsumer;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import de.siegmar.logbackgelf.GelfFieldCache;
+import de.siegmar.logbackgelf.GelfFieldFragment;
 import de.siegmar.logbackgelf.GelfFieldMapper;
+import de.siegmar.logbackgelf.GelfFieldSink;
 
 public class CallerDataFieldMapper implements GelfFieldMapper<Object> {
 
+    private final GelfFieldCache<StackTraceElement, GelfFieldFragment> cache;
+
+    public CallerDataFieldMapper() {
+        this(null);
+    }
+
+    /**
+     * Creates a field mapper that caches the serialized caller data fields per call site.
+     *
+     * @param cache the cache of serialized fields - {@code null} to disable caching.
+     */
+    public CallerDataFieldMapper(final GelfFieldCache<StackTraceElement, GelfFieldFragment> cache) {
+        this.cache = cache;
+    }
+
+    public GelfFieldCache<StackTraceElement, GelfFieldFragment> getCache() {
+        return cache;
+    }
+
     @Override
     public void mapField(final ILoggingEvent event, final BiConsumer<String, Object> valueHandler) {
         Optional.ofNullable(event.getCallerData())
             .filter(s -> s.length > 0)
             .map(s -> s[0])
-            .ifPresent(first -> {
-                valueHandler.accept("source_file_name", first.getFileName());
-                valueHandler.accept("source_method_name", first.getMethodName());
-                valueHandler.accept("source_class_name", first.getClassName());
-                valueHandler.accept("source_line_number", first.getLineNumber());
-            });
+            .ifPresent(first -> mapCallerData(first, valueHandler::accept));
+    }
+
+    private static void mapCallerData(final StackTraceElement callerData, final GelfFieldSink sink) {
+        sink.accept("source_file_name", callerData.getFileName());
+        sink.accept("source_method_name", callerData.getMethodName());
+        sink.accept("source_class_name", callerData.getClassName());
+        sink.acceptLong("source_line_number", callerData.getLineNumber());
+    }
+
+    @Override
+    public void streamField(final ILoggingEvent event, final GelfFieldSink sink) {
+        final StackTraceElement[] callerData = event.getCallerData();
+        if (callerData == null || callerData.length == 0) {
+            return;
+        }
+
+        final StackTraceElement first = callerData[0];
+        if (cache == null) {
+            mapCallerData(first, sink);
+            return;
+        }
+
+        GelfFieldFragment fragment = cache.get(first);
+        if (fragment == null) {
+            fragment = sink.serialize(s -> mapCallerData(first, s));
+            cache.put(first, fragment);
+        }
+        sink.accept(fragment);
     }
 
 }
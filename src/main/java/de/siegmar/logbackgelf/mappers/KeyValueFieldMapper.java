@@ -0,0 +1,146 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2016 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf.mappers;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import de.siegmar.logbackgelf.GelfFieldMapper;
+import de.siegmar.logbackgelf.GelfFieldSink;
+
+/**
+ * Maps the key value pairs of an event (added via the fluent logging API of SLF4J 2, e.g.
+ * {@code logger.atInfo().addKeyValue("duration", 42).log("done")}) to additional fields.
+ * <p>
+ * Key value pairs are supported by Logback 1.3 and later. As this library still supports
+ * Logback 1.2, the accessors are resolved at runtime - see {@link #isSupported()}.
+ * <p>
+ * Values are written with their native type: integral numbers, doubles and booleans are added via
+ * the primitive methods of {@link GelfFieldSink} - without converting them to a String (and
+ * parsing them again). Other values are added like values of any other mapper.
+ */
+public class KeyValueFieldMapper implements GelfFieldMapper<Object> {
+
+    private static final MethodHandle GET_KEY_VALUE_PAIRS;
+    private static final MethodHandle KEY;
+    private static final MethodHandle VALUE;
+
+    static {
+        MethodHandle getKeyValuePairs = null;
+        MethodHandle key = null;
+        MethodHandle value = null;
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            final Class<?> keyValuePair = Class.forName("org.slf4j.event.KeyValuePair");
+            getKeyValuePairs = lookup.findVirtual(ILoggingEvent.class, "getKeyValuePairs",
+                    MethodType.methodType(List.class))
+                .asType(MethodType.methodType(List.class, ILoggingEvent.class));
+            key = lookup.findGetter(keyValuePair, "key", String.class)
+                .asType(MethodType.methodType(String.class, Object.class));
+            value = lookup.findGetter(keyValuePair, "value", Object.class)
+                .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (final ReflectiveOperationException e) {
+            // Logback < 1.3 / SLF4J < 2
+            getKeyValuePairs = null;
+        }
+        GET_KEY_VALUE_PAIRS = getKeyValuePairs;
+        KEY = key;
+        VALUE = value;
+    }
+
+    /**
+     * Checks if the Logback version in use supports key value pairs.
+     *
+     * @return {@code true} if key value pairs are supported.
+     */
+    public static boolean isSupported() {
+        return GET_KEY_VALUE_PAIRS != null;
+    }
+
+    @Override
+    public void mapField(final ILoggingEvent event, final BiConsumer<String, Object> valueHandler) {
+        streamField(event, valueHandler::accept);
+    }
+
+    @Override
+    public void streamField(final ILoggingEvent event, final GelfFieldSink sink) {
+        final List<?> keyValuePairs = keyValuePairs(event);
+        if (keyValuePairs == null) {
+            return;
+        }
+
+        for (final Object keyValuePair : keyValuePairs) {
+            final String key = key(keyValuePair);
+            if (key != null) {
+                streamValue(sink, key, value(keyValuePair));
+            }
+        }
+    }
+
+    /**
+     * Adds a value to the sink - with the sink method matching its type.
+     */
+    static void streamValue(final GelfFieldSink sink, final String key, final Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            sink.acceptLong(key, ((Number) value).longValue());
+        } else if (value instanceof Double) {
+            sink.acceptDouble(key, (Double) value);
+        } else if (value instanceof Boolean) {
+            sink.acceptBoolean(key, (Boolean) value);
+        } else {
+            sink.accept(key, value);
+        }
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private static List<?> keyValuePairs(final ILoggingEvent event) {
+        if (GET_KEY_VALUE_PAIRS == null) {
+            return List.of();
+        }
+        try {
+            return (List<?>) GET_KEY_VALUE_PAIRS.invokeExact(event);
+        } catch (final Throwable e) {
+            throw new IllegalStateException("Could not get key value pairs", e);
+        }
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private static String key(final Object keyValuePair) {
+        try {
+            return (String) KEY.invokeExact(keyValuePair);
+        } catch (final Throwable e) {
+            throw new IllegalStateException("Could not get key of key value pair", e);
+        }
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private static Object value(final Object keyValuePair) {
+        try {
+            return (Object) VALUE.invokeExact(keyValuePair);
+        } catch (final Throwable e) {
+            throw new IllegalStateException("Could not get value of key value pair", e);
+        }
+    }
+
+}
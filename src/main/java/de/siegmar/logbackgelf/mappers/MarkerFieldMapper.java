@@ -20,15 +20,41 @@
 package de.siegmar.logbackgelf.mappers;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import de.siegmar.logbackgelf.GelfFieldCache;
+import de.siegmar.logbackgelf.GelfFieldFragment;
+import de.siegmar.logbackgelf.GelfFieldSink;
 import org.slf4j.Marker;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 
 public class MarkerFieldMapper extends AbstractFixedNameFieldMapper<String> {
 
+	private static final Marker[] NO_REFERENCES = new Marker[0];
+
+	private final GelfFieldCache<Marker, CachedMarker> cache;
+
 	public MarkerFieldMapper (String fieldName) {
+		this(fieldName, null);
+	}
+
+	/**
+	 * Creates a field mapper that caches the serialized marker field per marker instance. A cached
+	 * entry is only used as long as the references of the marker are unchanged.
+	 *
+	 * @param fieldName the name of the field.
+	 * @param cache a {@link GelfFieldCache#weakIdentityKeyed(String, int) weak identity keyed} cache
+	 *     - {@code null} to disable caching.
+	 */
+	public MarkerFieldMapper (String fieldName, GelfFieldCache<Marker, CachedMarker> cache) {
 		super(fieldName);
+		this.cache = cache;
+	}
+
+	public GelfFieldCache<Marker, CachedMarker> getCache () {
+		return cache;
 	}
 
 	@Override
@@ -37,6 +63,24 @@ public class MarkerFieldMapper extends AbstractFixedNameFieldMapper<String> {
 			.map(MarkerFieldMapper::buildMarkerStr);
 	}
 
+	@Override
+	public void streamField (ILoggingEvent event, GelfFieldSink sink) {
+		Marker marker = event.getMarker();
+		if (cache == null || marker == null) {
+			super.streamField(event, sink);
+			return;
+		}
+
+		CachedMarker cached = cache.get(marker);
+		if (cached == null || !cached.isValidFor(marker)) {
+			Marker[] references = snapshotReferences(marker);
+			String markerStr = buildMarkerStr(marker.getName(), references);
+			cached = new CachedMarker(references, sink.serialize(s -> s.accept(getFieldName(), markerStr)));
+			cache.put(marker, cached);
+		}
+		sink.accept(cached.fragment);
+	}
+
 	private static String buildMarkerStr (Marker marker) {
 		if (!marker.hasReferences()){
 			return marker.getName();
@@ -52,4 +96,59 @@ public class MarkerFieldMapper extends AbstractFixedNameFieldMapper<String> {
 		return sb.toString();
 	}
 
-}
\ No newline at end of file
+	private static String buildMarkerStr (String name, Marker[] references) {
+		if (references.length == 0){
+			return name;
+		}
+
+		StringBuilder sb = new StringBuilder(name);
+		for (Marker reference : references) {
+			sb.append(',').append(reference.getName());
+		}
+
+		return sb.toString();
+	}
+
+	private static Marker[] snapshotReferences (Marker marker) {
+		if (!marker.hasReferences()){
+			return NO_REFERENCES;
+		}
+
+		List<Marker> references = new ArrayList<>();
+		marker.iterator().forEachRemaining(references::add);
+		return references.toArray(NO_REFERENCES);
+	}
+
+	/**
+	 * Serialized marker field together with the references of the marker it was built from.
+	 */
+	public static final class CachedMarker {
+
+		private final Marker[] references;
+		private final GelfFieldFragment fragment;
+
+		CachedMarker (Marker[] references, GelfFieldFragment fragment) {
+			this.references = references;
+			this.fragment = fragment;
+		}
+
+		/**
+		 * Checks if the marker still has the same references (by identity) as when it was cached.
+		 */
+		boolean isValidFor (Marker marker) {
+			if (!marker.hasReferences()){
+				return references.length == 0;
+			}
+
+			Iterator<Marker> it = marker.iterator();
+			for (Marker reference : references) {
+				if (!it.hasNext() || it.next() != reference){
+					return false;
+				}
+			}
+			return !it.hasNext();
+		}
+
+	}
+
+}
@@ -19,18 +19,66 @@
 
 package de.siegmar.logbackgelf.mappers;
 
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiConsumer;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import de.siegmar.logbackgelf.GelfFieldCache;
+import de.siegmar.logbackgelf.GelfFieldFragment;
 import de.siegmar.logbackgelf.GelfFieldMapper;
+import de.siegmar.logbackgelf.GelfFieldSink;
 
 public class MdcDataFieldMapper implements GelfFieldMapper<String> {
 
+    private final GelfFieldCache<Map<String, String>, GelfFieldFragment> cache;
+
+    public MdcDataFieldMapper() {
+        this(null);
+    }
+
+    /**
+     * Creates a field mapper that caches the serialized MDC per map instance. Logback hands out
+     * the same (unmodified) map instance until the MDC of the thread gets modified - so all events
+     * logged with the same MDC share the serialized fields.
+     *
+     * @param cache a {@link GelfFieldCache#weakIdentityKeyed(String, int) weak identity keyed}
+     *     cache of serialized fields - {@code null} to disable caching.
+     */
+    public MdcDataFieldMapper(final GelfFieldCache<Map<String, String>, GelfFieldFragment> cache) {
+        this.cache = cache;
+    }
+
+    public GelfFieldCache<Map<String, String>, GelfFieldFragment> getCache() {
+        return cache;
+    }
+
     @Override
     public void mapField(final ILoggingEvent event, final BiConsumer<String, String> valueHandler) {
         Optional.ofNullable(event.getMDCPropertyMap())
             .ifPresent(p -> p.forEach(valueHandler));
     }
 
+    @Override
+    public void streamField(final ILoggingEvent event, final GelfFieldSink sink) {
+        final Map<String, String> mdc = event.getMDCPropertyMap();
+        if (mdc == null || mdc.isEmpty()) {
+            return;
+        }
+
+        if (cache == null) {
+            mdc.forEach(sink::accept);
+            return;
+        }
+
+        GelfFieldFragment fragment = cache.get(mdc);
+
+        // cheap guard against maps that have been modified after they were cached
+        if (fragment == null || fragment.getFieldCount() != mdc.size()) {
+            fragment = sink.serialize(s -> mdc.forEach(s::accept));
+            cache.put(mdc, fragment);
+        }
+        sink.accept(fragment);
+    }
+
 }
@@ -25,6 +25,7 @@ import java.util.function.BiConsumer;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.IThrowableProxy;
 import de.siegmar.logbackgelf.GelfFieldMapper;
+import de.siegmar.logbackgelf.GelfFieldSink;
 
 public class RootExceptionDataFieldMapper implements GelfFieldMapper<Object> {
 
@@ -37,6 +38,15 @@ public class RootExceptionDataFieldMapper implements GelfFieldMapper<Object> {
             });
     }
 
+    @Override
+    public void streamField(final ILoggingEvent event, final GelfFieldSink sink) {
+        final IThrowableProxy rootException = getRootException(event.getThrowableProxy());
+        if (rootException != null) {
+            sink.accept("root_cause_class_name", rootException.getClassName());
+            sink.accept("root_cause_message", rootException.getMessage());
+        }
+    }
+
     private IThrowableProxy getRootException(final IThrowableProxy throwableProxy) {
         if (throwableProxy == null) {
             return null;
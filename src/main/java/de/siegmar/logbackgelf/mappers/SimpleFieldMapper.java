@@ -23,14 +23,36 @@ import java.util.Optional;
 import java.util.function.Function;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import de.siegmar.logbackgelf.GelfFieldCache;
+import de.siegmar.logbackgelf.GelfFieldFragment;
+import de.siegmar.logbackgelf.GelfFieldSink;
 
 public class SimpleFieldMapper<T> extends AbstractFixedNameFieldMapper<T> {
 
     private final Function<ILoggingEvent, T> valueGetter;
+    private final GelfFieldCache<T, GelfFieldFragment> cache;
 
     public SimpleFieldMapper(final String fieldName, final Function<ILoggingEvent, T> valueGetter) {
+        this(fieldName, valueGetter, null);
+    }
+
+    /**
+     * Creates a field mapper that caches the serialized field per value. Only reasonable if the
+     * number of distinct values is limited (like logger names).
+     *
+     * @param fieldName the name of the field.
+     * @param valueGetter retrieves the value from the event.
+     * @param cache the cache of serialized fields - {@code null} to disable caching.
+     */
+    public SimpleFieldMapper(final String fieldName, final Function<ILoggingEvent, T> valueGetter,
+                             final GelfFieldCache<T, GelfFieldFragment> cache) {
         super(fieldName);
         this.valueGetter = valueGetter;
+        this.cache = cache;
+    }
+
+    public GelfFieldCache<T, GelfFieldFragment> getCache() {
+        return cache;
     }
 
     @Override
@@ -38,4 +60,24 @@ public class SimpleFieldMapper<T> extends AbstractFixedNameFieldMapper<T> {
         return Optional.ofNullable(valueGetter.apply(event));
     }
 
+    @Override
+    public void streamField(final ILoggingEvent event, final GelfFieldSink sink) {
+        final T value = valueGetter.apply(event);
+        if (value == null) {
+            return;
+        }
+
+        if (cache == null) {
+            sink.accept(getFieldName(), value);
+            return;
+        }
+
+        GelfFieldFragment fragment = cache.get(value);
+        if (fragment == null) {
+            fragment = sink.serialize(s -> s.accept(getFieldName(), value));
+            cache.put(value, fragment);
+        }
+        sink.accept(fragment);
+    }
+
 }
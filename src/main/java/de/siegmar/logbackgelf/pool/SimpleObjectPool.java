@@ -38,6 +38,12 @@ public final class SimpleObjectPool<T extends BasePooledObject> implements Close
     private final int maxLifeTime;
     private final int maxIdleTime;
 
+    /**
+     * Set once the pool has been closed - objects invalidated afterwards (by operations that
+     * were still running) are closed instead of being recycled. Guarded by {@link #allObjects}.
+     */
+    private boolean closed;
+
     public SimpleObjectPool(final PooledObjectFactory<T> objectFactory,
                             final int poolSize, final int maxWaitTime,
                             final int maxLifeTime, final int maxIdleTime) {
@@ -79,6 +85,10 @@ public final class SimpleObjectPool<T extends BasePooledObject> implements Close
     }
 
     public T borrowObject() throws InterruptedException {
+        if (isClosed()) {
+            throw new IllegalStateException("Pool has been closed");
+        }
+
         final T pooledObject;
         if (maxWaitTime < 0) {
             pooledObject = pool.take();
@@ -91,6 +101,9 @@ public final class SimpleObjectPool<T extends BasePooledObject> implements Close
         }
 
         final T result = needToEvict(pooledObject) ? recycle(pooledObject) : pooledObject;
+        if (result == null) {
+            throw new IllegalStateException("Pool has been closed");
+        }
         result.borrow();
         return result;
     }
@@ -103,11 +116,20 @@ public final class SimpleObjectPool<T extends BasePooledObject> implements Close
         return maxIdleTime >= 0 && pooledObject.idleTime() > maxIdleTime;
     }
 
+    /**
+     * Replaces the given object by a new instance.
+     *
+     * @param oldInstance the object to replace.
+     * @return the new instance or {@code null} if the pool has been closed.
+     */
     private T recycle(final T oldInstance) {
-        final T newInstance = objectFactory.newInstance();
+        final T newInstance;
         synchronized (allObjects) {
             allObjects.remove(oldInstance);
-            allObjects.add(newInstance);
+            newInstance = closed ? null : objectFactory.newInstance();
+            if (newInstance != null) {
+                allObjects.add(newInstance);
+            }
         }
 
         oldInstance.close();
@@ -119,12 +141,22 @@ public final class SimpleObjectPool<T extends BasePooledObject> implements Close
     }
 
     public void invalidateObject(final T pooledObject) {
-        pool.add(recycle(pooledObject));
+        final T newInstance = recycle(pooledObject);
+        if (newInstance != null) {
+            pool.add(newInstance);
+        }
+    }
+
+    private boolean isClosed() {
+        synchronized (allObjects) {
+            return closed;
+        }
     }
 
     @Override
     public void close() {
         synchronized (allObjects) {
+            closed = true;
             for (T object : allObjects) {
                 object.close();
             }
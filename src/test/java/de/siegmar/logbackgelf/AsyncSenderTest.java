@@ -0,0 +1,159 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.ContextAwareBase;
+
+class AsyncSenderTest {
+
+    private final ContextAwareBase status = new ContextAwareBase();
+
+    @BeforeEach
+    void before() {
+        status.setContext(new LoggerContext());
+    }
+
+    private AsyncSender asyncSender(final EncodedMessageConsumer sender) {
+        return new AsyncSender("test-sender", 64, 64, WaitStrategy.PARK,
+            new OverflowHandler(OverflowPolicy.DROP_NEWEST, 0, Level.WARN), sender, status);
+    }
+
+    private static void enqueue(final AsyncSender asyncSender, final int count) {
+        for (int i = 0; i < count; i++) {
+            final byte[] message = ("message " + i).getBytes(StandardCharsets.UTF_8);
+            assertThat(asyncSender.enqueue(message, 0, message.length)).isTrue();
+        }
+    }
+
+    private static void await(final CountDownLatch latch) throws InterruptedIOException {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static void sleep(final long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    @Test
+    void parallelFlushOnStop() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> sent = new CopyOnWriteArrayList<>();
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        final AsyncSender asyncSender = asyncSender((message, offset, length) -> {
+            if (blocked.getCount() > 0) {
+                // block the sender thread until messages are queued
+                blocked.countDown();
+                await(release);
+            }
+            threads.add(Thread.currentThread().getName());
+            sleep(5);
+            sent.add(new String(message, offset, length, StandardCharsets.UTF_8));
+        });
+        asyncSender.start();
+
+        enqueue(asyncSender, 1);
+        blocked.await();
+        enqueue(asyncSender, 40);
+        release.countDown();
+
+        final int dropped = asyncSender.stop(System.nanoTime() + TimeUnit.SECONDS.toNanos(10), 4);
+
+        assertThat(dropped).isZero();
+        assertThat(sent).hasSize(41);
+        assertThat(threads).hasSizeGreaterThan(1);
+    }
+
+    @Test
+    void dropAfterDeadline() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final AsyncSender asyncSender = asyncSender((message, offset, length) -> {
+            blocked.countDown();
+            await(release);
+        });
+        asyncSender.start();
+
+        enqueue(asyncSender, 1);
+        blocked.await();
+        enqueue(asyncSender, 10);
+
+        final long start = System.nanoTime();
+        final int dropped = asyncSender.stop(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100), 1);
+        release.countDown();
+
+        // the queued messages and the one still being sent
+        assertThat(dropped).isEqualTo(11);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    void noSendAfterDeadline() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> sent = new CopyOnWriteArrayList<>();
+
+        final AsyncSender asyncSender = asyncSender((message, offset, length) -> {
+            // block the sender thread and the flush thread
+            blocked.countDown();
+            await(release);
+            sent.add(new String(message, offset, length, StandardCharsets.UTF_8));
+        });
+        asyncSender.start();
+
+        enqueue(asyncSender, 10);
+        final int dropped = asyncSender.stop(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200), 2);
+        assertThat(blocked.getCount()).isZero();
+        release.countDown();
+        Thread.sleep(100);
+
+        // the queued messages and the two still being sent
+        assertThat(dropped).isEqualTo(10);
+        // only the two messages that were being sent at the deadline
+        assertThat(sent).hasSize(2);
+        assertThat(asyncSender.getQueueSize()).isEqualTo(8);
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+
+class BufferSizePredictorTest {
+
+    private final BufferSizePredictor predictor = new BufferSizePredictor(65_536);
+
+    private static LoggingEvent event(final Level level, final boolean withThrowable) {
+        final LoggingEvent event = new LoggingEvent();
+        event.setLevel(level);
+        if (withThrowable) {
+            event.setThrowableProxy(new ThrowableProxy(new IOException()));
+        }
+        return event;
+    }
+
+    @Test
+    void noEstimate() {
+        assertThat(predictor.predict(event(Level.INFO, false))).isZero();
+    }
+
+    @Test
+    void firstSampleWithHeadroom() {
+        predictor.record(event(Level.INFO, false), 1000);
+
+        assertThat(predictor.predict(event(Level.INFO, false))).isEqualTo(1250);
+    }
+
+    @Test
+    void separateBuckets() {
+        predictor.record(event(Level.ERROR, true), 8000);
+        predictor.record(event(Level.ERROR, false), 400);
+
+        assertThat(predictor.predict(event(Level.ERROR, true))).isEqualTo(10_000);
+        assertThat(predictor.predict(event(Level.ERROR, false))).isEqualTo(500);
+        assertThat(predictor.predict(event(Level.INFO, true))).isZero();
+        assertThat(predictor.predict(event(Level.WARN, false))).isZero();
+    }
+
+    @Test
+    void movingAverage() {
+        final LoggingEvent event = event(Level.DEBUG, false);
+        predictor.record(event, 1000);
+        predictor.record(event, 9000);
+
+        assertThat(predictor.predict(event)).isEqualTo(2500);
+
+        for (int i = 0; i < 100; i++) {
+            predictor.record(event, 200);
+        }
+
+        assertThat(predictor.predict(event)).isBetween(250, 260);
+    }
+
+    @Test
+    void limitedToMaxSize() {
+        predictor.record(event(Level.ERROR, true), 1_000_000);
+
+        assertThat(predictor.predict(event(Level.ERROR, true))).isEqualTo(65_536);
+    }
+
+}
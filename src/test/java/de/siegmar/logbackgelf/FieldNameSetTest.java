@@ -0,0 +1,69 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class FieldNameSetTest {
+
+    @Test
+    void add() {
+        final FieldNameSet set = new FieldNameSet(List.of());
+        assertThat(set.add("foo")).isTrue();
+        assertThat(set.add("foo")).isFalse();
+        assertThat(set.contains("foo")).isTrue();
+        assertThat(set.contains("bar")).isFalse();
+    }
+
+    @Test
+    void permanentNamesSurviveClear() {
+        final FieldNameSet set = new FieldNameSet(List.of("static"));
+        assertThat(set.add("static")).isFalse();
+        assertThat(set.add("foo")).isTrue();
+
+        set.clear();
+
+        assertThat(set.contains("static")).isTrue();
+        assertThat(set.contains("foo")).isFalse();
+        assertThat(set.add("foo")).isTrue();
+    }
+
+    @Test
+    void grow() {
+        final FieldNameSet set = new FieldNameSet(List.of("static"));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(set.add("field" + i)).isTrue();
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertThat(set.add("field" + i)).isFalse();
+        }
+        assertThat(set.contains("static")).isTrue();
+
+        set.clear();
+
+        assertThat(set.contains("field0")).isFalse();
+        assertThat(set.contains("static")).isTrue();
+    }
+
+}
@@ -22,7 +22,12 @@ package de.siegmar.logbackgelf;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.status.Status;
+import de.siegmar.logbackgelf.mappers.KeyValueFieldMapper;
+import de.siegmar.logbackgelf.mappers.SimpleFieldMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -33,12 +38,19 @@ import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import static java.util.Map.entry;
 import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SuppressWarnings({"checkstyle:ClassDataAbstractionCoupling", "PMD.AvoidDuplicateLiterals"})
 class GelfEncoderTest {
@@ -144,6 +156,101 @@ class GelfEncoderTest {
             .startsWith("message 1\njava.lang.IllegalArgumentException: Example Exception\n");
     }
 
+    @Test
+    void defaultLayoutSameAsPatternLayout() {
+        encoder.start();
+
+        final GelfEncoder patternEncoder = new GelfEncoder();
+        patternEncoder.setContext(encoder.getContext());
+        patternEncoder.setOriginHost("localhost");
+        patternEncoder.setShortMessageLayout(patternLayout("%msg%nopex"));
+        patternEncoder.setFullMessageLayout(patternLayout("%msg%n"));
+        patternEncoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        for (final Throwable e : Arrays.asList(null, new IllegalStateException("Example", new IOException()))) {
+            final LoggingEvent event = simpleLoggingEvent(logger, e);
+            assertThat(encodeToStr(event))
+                .isEqualTo(new String(patternEncoder.encode(event), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void cachedStackTrace() {
+        encoder.start();
+
+        final GelfEncoder uncachedEncoder = new GelfEncoder();
+        uncachedEncoder.setContext(encoder.getContext());
+        uncachedEncoder.setOriginHost("localhost");
+        uncachedEncoder.setStackTraceCacheSize(0);
+        uncachedEncoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        // same call site (cache hit) - followed by a different message and cause (cache miss)
+        final List<String> messages = new ArrayList<>();
+        for (final String message : Arrays.asList("Example", "Example", "Other")) {
+            final Throwable cause = "Other".equals(message) ? new IOException("cause") : null;
+            final LoggingEvent event = simpleLoggingEvent(logger, new IllegalStateException(message, cause));
+            final String logMsg = encodeToStr(event);
+            assertThat(logMsg).isEqualTo(new String(uncachedEncoder.encode(event), StandardCharsets.UTF_8));
+            messages.add(logMsg);
+        }
+
+        assertThatJson(messages.get(1)).whenIgnoringPaths("timestamp").isEqualTo(messages.get(0));
+        assertThatJson(messages.get(2)).node("full_message").asString()
+            .startsWith("message 1\njava.lang.IllegalStateException: Other\n")
+            .contains("Caused by: java.io.IOException: cause");
+    }
+
+    @Test
+    void truncatedStackTrace() {
+        encoder.addStackTraceFilter("org.junit.");
+        encoder.setMaxStackTraceSize(500);
+        encoder.setStackTraceCacheSize(0);
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final String logMsg = encodeToStr(simpleLoggingEvent(logger, new IllegalStateException("Example")));
+
+        assertThatJson(logMsg).node("full_message").asString()
+            .startsWith("message 1\njava.lang.IllegalStateException: Example\n")
+            .endsWith(StackTraceWriter.TRUNCATION_MARKER + "\n")
+            .doesNotContain("at org.junit.");
+    }
+
+    @Test
+    void maxMessageSize() {
+        encoder.setMaxMessageSize(1000);
+        encoder.setStackTraceCacheSize(0);
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final byte[] logMsg = encoder.encode(simpleLoggingEvent(logger, new IllegalStateException("Example")));
+
+        assertThat(logMsg).hasSizeLessThanOrEqualTo(1000);
+        assertThatJson(new String(logMsg, StandardCharsets.UTF_8)).and(
+            j -> j.node("short_message").isEqualTo("message 1"),
+            j -> j.node("full_message").asString().startsWith("message 1\njava.lang.IllegalStateException"),
+            j -> j.node("_truncated").isEqualTo("true")
+        );
+    }
+
+    private PatternLayout patternLayout(final String pattern) {
+        final PatternLayout layout = new PatternLayout();
+        layout.setContext(encoder.getContext());
+        layout.setPattern(pattern);
+        layout.start();
+        return layout;
+    }
+
     @Test
     void complex() {
         encoder.setIncludeRawMessage(true);
@@ -173,6 +280,328 @@ class GelfEncoderTest {
         );
     }
 
+    @Test
+    void staticFieldNotOverwrittenByFieldMapper() {
+        encoder.addStaticField("logger_name:static");
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final String logMsg = encodeToStr(simpleLoggingEvent(logger, null));
+
+        coreValidation(logMsg);
+        assertThat(logMsg).containsOnlyOnce("\"_logger_name\"");
+        assertThatJson(logMsg).node("_logger_name").isEqualTo("static");
+    }
+
+    @Test
+    void staticFieldsPassedToBuildGelfMessage() {
+        final List<Map<String, Object>> builtFields = new ArrayList<>();
+        final GelfEncoder customEncoder = new GelfEncoder() {
+            @Override
+            protected GelfMessage buildGelfMessage(final long timestamp, final int logLevel,
+                                                   final String shortMessage, final String fullMessage,
+                                                   final Map<String, Object> additionalFields) {
+                builtFields.add(Map.copyOf(additionalFields));
+                return super.buildGelfMessage(timestamp, logLevel, shortMessage, fullMessage, additionalFields);
+            }
+        };
+        customEncoder.setContext(new LoggerContext());
+        customEncoder.setOriginHost("localhost");
+        customEncoder.addStaticField("foo:bar");
+        customEncoder.addStaticField("logger_name:static");
+        customEncoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final String logMsg = new String(customEncoder.encode(simpleLoggingEvent(logger, null)),
+            StandardCharsets.UTF_8);
+
+        assertThat(builtFields).singleElement()
+            .satisfies(f -> assertThat(f).contains(entry("foo", "bar"), entry("logger_name", "static")));
+
+        coreValidation(logMsg);
+        assertThat(logMsg).containsOnlyOnce("\"_foo\"").containsOnlyOnce("\"_logger_name\"");
+        assertThatJson(logMsg).and(
+            j -> j.node("_foo").isEqualTo("bar"),
+            j -> j.node("_logger_name").isEqualTo("static")
+        );
+    }
+
+    @Test
+    void duplicateFieldOfCustomMapperIgnored() {
+        encoder.addFieldMapper((event, valueHandler) -> {
+            valueHandler.accept("custom", "first");
+            valueHandler.accept("custom", "second");
+            valueHandler.accept("logger_name", "duplicate");
+        });
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final String logMsg = encodeToStr(simpleLoggingEvent(logger, null));
+
+        coreValidation(logMsg);
+        assertThat(logMsg).containsOnlyOnce("\"_custom\"").containsOnlyOnce("\"_logger_name\"");
+        assertThatJson(logMsg).and(
+            j -> j.node("_custom").isEqualTo("first"),
+            j -> j.node("_logger_name").isEqualTo(LOGGER_NAME)
+        );
+    }
+
+    @Test
+    void duplicateFixedNameMapperUsedIfFirstHasNoValue() {
+        // the second mapper is not disabled - its value is only rejected if the first mapper has one
+        encoder.addFieldMapper(new SimpleFieldMapper<>("custom",
+            event -> event.getThrowableProxy() != null ? "first" : null));
+        encoder.addFieldMapper(new SimpleFieldMapper<>("custom", event -> "second"));
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final String withException = encodeToStr(simpleLoggingEvent(logger, new IllegalStateException()));
+        assertThat(withException).containsOnlyOnce("\"_custom\"");
+        assertThatJson(withException).node("_custom").isEqualTo("first");
+        assertThatJson(encodeToStr(simpleLoggingEvent(logger, null))).node("_custom").isEqualTo("second");
+    }
+
+    @Test
+    void fixedFieldNamesValidatedOnce() {
+        final List<String> validatedNames = new ArrayList<>();
+        final GelfEncoder customEncoder = new GelfEncoder() {
+            @Override
+            void validateFieldName(final String fieldName) {
+                validatedNames.add(fieldName);
+                super.validateFieldName(fieldName);
+            }
+        };
+        customEncoder.setContext(new LoggerContext());
+        customEncoder.setOriginHost("localhost");
+        customEncoder.addFieldMapper(new SimpleFieldMapper<>("custom", event -> "fixed"));
+        customEncoder.addFieldMapper((event, valueHandler) -> valueHandler.accept("dynamic", "value"));
+        customEncoder.start();
+        validatedNames.clear();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final String logMsg = new String(customEncoder.encode(simpleLoggingEvent(logger, null)),
+            StandardCharsets.UTF_8);
+
+        // only the name of the mapper without a fixed name is validated per event
+        assertThat(validatedNames).containsExactly("dynamic");
+        assertThatJson(logMsg).and(
+            j -> j.node("_custom").isEqualTo("fixed"),
+            j -> j.node("_dynamic").isEqualTo("value"),
+            j -> j.node("_logger_name").isEqualTo(LOGGER_NAME)
+        );
+    }
+
+    @Test
+    void invalidFieldOfCustomMapperIgnored() {
+        encoder.addFieldMapper((event, valueHandler) -> {
+            valueHandler.accept("in valid", "foo");
+            valueHandler.accept("id", "foo");
+            valueHandler.accept("", "foo");
+            valueHandler.accept("valid", null);
+            valueHandler.accept("va.l-i_d", "42");
+        });
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final String logMsg = encodeToStr(simpleLoggingEvent(logger, null));
+
+        coreValidation(logMsg);
+        assertThatJson(logMsg).and(
+            j -> j.node("_in valid").isAbsent(),
+            j -> j.node("_id").isAbsent(),
+            j -> j.node("_").isAbsent(),
+            j -> j.node("_valid").isAbsent(),
+            j -> j.node("_va.l-i_d").isEqualTo(42)
+        );
+    }
+
+    @Test
+    void primitiveFields() {
+        encoder.addFieldMapper(new GelfFieldMapper<Object>() {
+            @Override
+            public void mapField(final ILoggingEvent event, final BiConsumer<String, Object> valueHandler) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void streamField(final ILoggingEvent event, final GelfFieldSink sink) {
+                sink.acceptLong("long", -42);
+                sink.acceptDouble("double", 1.5);
+                sink.acceptDouble("nan", Double.NaN);
+                sink.acceptBoolean("boolean", true);
+                sink.acceptBytes("bytes", "foo \"bar\"".getBytes(StandardCharsets.UTF_8));
+                sink.acceptBytes("numeric_bytes", "42".getBytes(StandardCharsets.UTF_8));
+                sink.acceptBytes("utf8_bytes", "äöü".getBytes(StandardCharsets.UTF_8));
+                sink.acceptLong("long", 1);
+            }
+        });
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final String logMsg = encodeToStr(simpleLoggingEvent(logger, null));
+
+        coreValidation(logMsg);
+        assertThat(logMsg).containsOnlyOnce("\"_long\"");
+        assertThatJson(logMsg).and(
+            j -> j.node("_long").isEqualTo(-42),
+            j -> j.node("_double").isEqualTo(1.5),
+            j -> j.node("_nan").isEqualTo("NaN"),
+            j -> j.node("_boolean").isEqualTo("true"),
+            j -> j.node("_bytes").isEqualTo("foo \"bar\""),
+            j -> j.node("_numeric_bytes").isEqualTo(42),
+            j -> j.node("_utf8_bytes").isEqualTo("äöü")
+        );
+    }
+
+    @Test
+    void failingFieldMapperDoesNotBreakMessage() {
+        encoder.addFieldMapper((event, valueHandler) -> {
+            valueHandler.accept("before", "foo");
+            throw new IllegalStateException("boom");
+        });
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final String logMsg = encodeToStr(simpleLoggingEvent(logger, null));
+
+        coreValidation(logMsg);
+        assertThatJson(logMsg).node("_before").isEqualTo("foo");
+    }
+
+    @Test
+    void cachedNames() {
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final String first = encodeToStr(simpleLoggingEvent(logger, null));
+        final String second = encodeToStr(simpleLoggingEvent(logger, null));
+
+        basicValidation(first);
+        basicValidation(second);
+        assertThatJson(second).whenIgnoringPaths("timestamp").isEqualTo(first);
+        assertThat(encoder.getFieldCaches())
+            .filteredOn(c -> "logger_name".equals(c.getName()) || "thread_name".equals(c.getName()))
+            .hasSize(2)
+            .allSatisfy(c -> assertThat(c.getHits()).isOne());
+    }
+
+    @Test
+    void cachedMdc() {
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final Map<String, String> mdc = Map.of("request_id", "abc", "user", "4711");
+
+        final LoggingEvent first = simpleLoggingEvent(logger, null);
+        first.setMDCPropertyMap(mdc);
+        final LoggingEvent second = simpleLoggingEvent(logger, null);
+        second.setMDCPropertyMap(mdc);
+        final LoggingEvent other = simpleLoggingEvent(logger, null);
+        other.setMDCPropertyMap(Map.of("request_id", "def"));
+
+        for (final LoggingEvent event : List.of(first, second)) {
+            assertThatJson(encodeToStr(event)).and(
+                j -> j.node("_request_id").isEqualTo("abc"),
+                j -> j.node("_user").isNumber().isEqualTo("4711")
+            );
+        }
+        assertThatJson(encodeToStr(other)).and(
+            j -> j.node("_request_id").isEqualTo("def"),
+            j -> j.node("_user").isAbsent()
+        );
+
+        assertThat(encoder.getFieldCaches())
+            .filteredOn(c -> "mdc".equals(c.getName()))
+            .singleElement()
+            .satisfies(c -> assertThat(c.getHits()).isOne());
+    }
+
+    @Test
+    void fieldCacheDisabled() {
+        encoder.setFieldCacheSize(0);
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        basicValidation(encodeToStr(simpleLoggingEvent(logger, null)));
+        assertThat(encoder.getFieldCaches()).isEmpty();
+    }
+
+    @Test
+    void cachedCallerData() {
+        encoder.setIncludeCallerData(true);
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        for (int i = 0; i < 2; i++) {
+            final LoggingEvent event = simpleLoggingEvent(logger, null);
+            event.setCallerData(new StackTraceElement[]{
+                new StackTraceElement("com.example.Foo", "bar", "Foo.java", 42)});
+
+            assertThatJson(encodeToStr(event)).and(
+                j -> j.node("_source_file_name").isEqualTo("Foo.java"),
+                j -> j.node("_source_method_name").isEqualTo("bar"),
+                j -> j.node("_source_class_name").isEqualTo("com.example.Foo"),
+                j -> j.node("_source_line_number").isEqualTo(42)
+            );
+        }
+
+        assertThat(encoder.getFieldCaches())
+            .filteredOn(c -> "caller_data".equals(c.getName()))
+            .singleElement()
+            .satisfies(c -> assertThat(c.getHits()).isOne());
+    }
+
+    @Test
+    void cachedMarker() {
+        encoder.setIncludeMarker(true);
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final Marker marker = MarkerFactory.getDetachedMarker("CACHED");
+        for (int i = 0; i < 2; i++) {
+            final LoggingEvent event = simpleLoggingEvent(logger, null);
+            event.setMarker(marker);
+            assertThatJson(encodeToStr(event)).node("_marker").isEqualTo("CACHED");
+        }
+
+        assertThat(encoder.getFieldCaches())
+            .filteredOn(c -> "marker".equals(c.getName()))
+            .singleElement()
+            .satisfies(c -> assertThat(c.getHits()).isOne());
+
+        // References added after the first encoding must not be hidden by the cache
+        marker.add(MarkerFactory.getDetachedMarker("ADDED"));
+        final LoggingEvent event = simpleLoggingEvent(logger, null);
+        event.setMarker(marker);
+        assertThatJson(encodeToStr(event)).node("_marker").isEqualTo("CACHED,ADDED");
+    }
+
     @Test
     void customLevelNameKey() {
         encoder.setIncludeLevelName(true);
@@ -230,6 +659,41 @@ class GelfEncoderTest {
         );
     }
 
+    @Test
+    void invalidBuiltInFieldNameDisabled() {
+        encoder.setLoggerNameKey("in valid");
+        encoder.setIncludeLevelName(true);
+        encoder.setLevelNameKey("thread_name");
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final String logMsg = encodeToStr(simpleLoggingEvent(logger, null));
+
+        coreValidation(logMsg);
+        assertThat(logMsg).containsOnlyOnce("\"_thread_name\"");
+        assertThatJson(logMsg).and(
+            j -> j.node("_in valid").isAbsent(),
+            j -> j.node("_thread_name").isEqualTo(Thread.currentThread().getName())
+        );
+    }
+
+    @Test
+    void keyValuesNotSupportedByLogback12() {
+        encoder.setIncludeKeyValues(true);
+        encoder.start();
+
+        assertThat(encoder.getBuiltInFieldMappers()).noneMatch(KeyValueFieldMapper.class::isInstance);
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        basicValidation(encodeToStr(simpleLoggingEvent(logger, null)));
+        assertThat(encoder.getContext().getStatusManager().getCopyOfStatusList())
+            .allMatch(status -> status.getLevel() == Status.INFO);
+    }
+
     @Test
     void rootExceptionTurnedOff() {
         encoder.start();
@@ -325,6 +789,23 @@ class GelfEncoderTest {
         );
     }
 
+    @Test
+    void nonCanonicalNumericValue() {
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final LoggingEvent event = simpleLoggingEvent(logger, null);
+
+        event.setMDCPropertyMap(Map.of("zeros", "007", "exp", "1e3", "uuid", "550e8400-e29b-41d4-a716-446655440000"));
+
+        final String logMsg = encodeToStr(event);
+
+        assertThat(logMsg).contains("\"_zeros\":7", "\"_exp\":1E+3");
+        assertThatJson(logMsg).node("_uuid").isString().isEqualTo("550e8400-e29b-41d4-a716-446655440000");
+    }
+
     @Test
     void numericValueAsString() {
         encoder.setNumbersAsString(true);
@@ -389,6 +870,50 @@ class GelfEncoderTest {
         );
     }
 
+    @Test
+    void encodeIntoByteBuffer() {
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+        final LoggingEvent event = simpleLoggingEvent(logger, null);
+
+        final ByteBuffer dst = ByteBuffer.allocate(4096);
+        dst.put((byte) 'x');
+        final int length = encoder.encodeInto(event, dst);
+
+        assertThat(dst.position()).isEqualTo(length + 1);
+        assertThat(Arrays.copyOfRange(dst.array(), 1, length + 1)).isEqualTo(encoder.encode(event));
+    }
+
+    @Test
+    void encodeIntoTooSmallByteBuffer() {
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+
+        final ByteBuffer dst = ByteBuffer.allocate(10);
+        assertThatThrownBy(() -> encoder.encodeInto(simpleLoggingEvent(logger, null), dst))
+            .isInstanceOf(BufferOverflowException.class);
+        assertThat(dst.position()).isZero();
+    }
+
+    @Test
+    void encodeIntoConsumer() throws IOException {
+        encoder.start();
+
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+        final LoggingEvent event = simpleLoggingEvent(logger, null);
+
+        final List<byte[]> messages = new ArrayList<>();
+        encoder.encodeInto(event, (message, offset, length) ->
+            messages.add(Arrays.copyOfRange(message, offset, offset + length)));
+
+        assertThat(messages).singleElement().isEqualTo(encoder.encode(event));
+    }
+
     private String encodeToStr(final LoggingEvent event) {
         return new String(encoder.encode(event), StandardCharsets.UTF_8);
     }
@@ -448,7 +973,8 @@ class GelfEncoderTest {
             e -> assertThat(e.getLoggerNameKey()).isEqualTo("logger_name"),
             e -> assertThat(e.getThreadNameKey()).isEqualTo("thread_name"),
             e -> assertThat(e.isAppendNewline()).isFalse(),
-            e -> assertThat(e.isNumbersAsString()).isFalse()
+            e -> assertThat(e.isNumbersAsString()).isFalse(),
+            e -> assertThat(e.getStackTraceCacheSize()).isEqualTo(128)
         );
     }
 
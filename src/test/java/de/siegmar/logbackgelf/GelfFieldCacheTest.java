@@ -0,0 +1,86 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class GelfFieldCacheTest {
+
+    @Test
+    void equalityKeyed() {
+        final GelfFieldCache<String, String> cache = GelfFieldCache.equalityKeyed("test", 16);
+
+        assertThat(cache.get("foo")).isNull();
+        cache.put("foo", "bar");
+        assertThat(cache.get(new String("foo".toCharArray()))).isEqualTo("bar");
+
+        assertThat(cache.getHits()).isOne();
+        assertThat(cache.getMisses()).isOne();
+    }
+
+    @Test
+    void weakIdentityKeyed() {
+        final GelfFieldCache<Object, String> cache = GelfFieldCache.weakIdentityKeyed("test", 16);
+        final Object key = new Object();
+
+        cache.put(key, "bar");
+        assertThat(cache.get(key)).isEqualTo("bar");
+        assertThat(cache.get(new Object())).isNull();
+    }
+
+    @Test
+    void computeIfAbsent() {
+        final GelfFieldCache<String, String> cache = GelfFieldCache.equalityKeyed("test", 16);
+
+        assertThat(cache.computeIfAbsent("foo", k -> k + "1")).isEqualTo("foo1");
+        assertThat(cache.computeIfAbsent("foo", k -> k + "2")).isEqualTo("foo1");
+    }
+
+    @Test
+    void bounded() {
+        final GelfFieldCache<Integer, Integer> cache = GelfFieldCache.equalityKeyed("test", 5);
+        assertThat(cache.getCapacity()).isEqualTo(8);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+
+        int cached = 0;
+        for (int i = 0; i < 1000; i++) {
+            final Integer value = cache.get(i);
+            if (value != null) {
+                assertThat(value).isEqualTo(i);
+                cached++;
+            }
+        }
+        assertThat(cached).isBetween(1, 8);
+    }
+
+    @Test
+    void clear() {
+        final GelfFieldCache<String, String> cache = GelfFieldCache.equalityKeyed("test", 16);
+        cache.put("foo", "bar");
+        cache.clear();
+        assertThat(cache.get("foo")).isNull();
+    }
+
+}
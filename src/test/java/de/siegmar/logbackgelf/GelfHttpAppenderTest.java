@@ -21,17 +21,28 @@ package de.siegmar.logbackgelf;
 
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.status.Status;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
 import com.github.tomakehurst.wiremock.matching.RequestPattern;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static java.net.HttpURLConnection.HTTP_ACCEPTED;
+import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
 import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 
 class GelfHttpAppenderTest {
@@ -72,6 +83,82 @@ class GelfHttpAppenderTest {
         );
     }
 
+    @Test
+    void spillWhileServerDown(@TempDir final Path spillDirectory) {
+        final int messages = 20;
+        WIRE_MOCK.stubFor(post("/gelf").willReturn(aResponse().withStatus(HTTP_UNAVAILABLE)));
+
+        final LoggerContext lc = new LoggerContext();
+        final GelfHttpAppender appender = buildSpillingAppender(lc, spillDirectory);
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+        logger.addAppender(appender);
+        logger.setAdditive(false);
+
+        try {
+            for (int i = 0; i < messages; i++) {
+                logger.info("Message {}", i);
+            }
+
+            // only the first package is tried to be sent - all others are queued behind it
+            assertThat(appender.getSpilledMessages()).isEqualTo(messages);
+            assertThat(lc.getStatusManager().getCopyOfStatusList())
+                .filteredOn(s -> s.getMessage().contains("spilling messages to"))
+                .singleElement()
+                .satisfies(s -> assertThat(s.getLevel()).isEqualTo(Status.WARN));
+            assertThat(lc.getStatusManager().getCopyOfStatusList())
+                .noneMatch(s -> s.getLevel() == Status.ERROR);
+
+            gelfRequest();
+            await().until(() -> acceptedRequests().size() == messages);
+            assertThat(appender.getSpilledMessages()).isZero();
+
+            final List<LoggedRequest> requests = acceptedRequests();
+            for (int i = 0; i < messages; i++) {
+                final LoggedRequest request = requests.get(i);
+                assertThat(request.getHeader("Content-Encoding")).isEqualTo("gzip");
+                assertThatJson(request.getBodyAsString())
+                    .node("short_message").isEqualTo("Message " + i);
+            }
+        } finally {
+            appender.stop();
+        }
+    }
+
+    /**
+     * Requests accepted by the server - in the order they were received.
+     */
+    private static List<LoggedRequest> acceptedRequests() {
+        final List<LoggedRequest> requests = new ArrayList<>();
+        for (final ServeEvent event : WIRE_MOCK.getAllServeEvents()) {
+            if (event.getResponse().getStatus() == HTTP_ACCEPTED) {
+                requests.add(event.getRequest());
+            }
+        }
+
+        // serve events are listed most recent first
+        Collections.reverse(requests);
+        return requests;
+    }
+
+    private static GelfHttpAppender buildSpillingAppender(final LoggerContext lc, final Path spillDirectory) {
+        final GelfEncoder gelfEncoder = new GelfEncoder();
+        gelfEncoder.setContext(lc);
+        gelfEncoder.setOriginHost("localhost");
+        gelfEncoder.start();
+
+        final GelfHttpAppender gelfAppender = new GelfHttpAppender();
+        gelfAppender.setContext(lc);
+        gelfAppender.setName("GELF");
+        gelfAppender.setUri(String.format("http://localhost:%d/gelf", WIRE_MOCK.getPort()));
+        gelfAppender.setEncoder(gelfEncoder);
+        gelfAppender.setMaxRetries(0);
+        gelfAppender.setRetryDelay(100);
+        gelfAppender.setSpillDirectory(spillDirectory.toString());
+        gelfAppender.setSpillSegmentSize(64 * 1024);
+        gelfAppender.start();
+        return gelfAppender;
+    }
+
     private static RequestPattern gelfRequest() {
         return WIRE_MOCK.stubFor(post("/gelf").willReturn(aResponse().withStatus(HTTP_ACCEPTED)))
             .getRequest();
@@ -22,6 +22,7 @@ package de.siegmar.logbackgelf;
 import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 import org.junit.jupiter.api.Test;
@@ -82,4 +83,40 @@ class GelfMessageTest {
         );
     }
 
+    @Test
+    void writeTo() {
+        final Map<String, Object> additionalFields = Map.of("foo", "bär", "num", 42);
+
+        final GelfMessage message = new GelfMessage("host", "short message", "full \"message\"",
+            1584271169123L, 6, additionalFields);
+
+        final ByteArrayBuffer buf = new ByteArrayBuffer(16);
+        message.writeTo(buf);
+
+        assertThat(buf.toByteArray())
+            .isEqualTo(message.toJSON().toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writeToWithHeader() {
+        final byte[] header = GelfMessage.buildHeader("host", Map.of("static", "value"));
+
+        final GelfMessage message = new GelfMessage("host", "short message", null,
+            1584271169123L, 6, Map.of("foo", "bar"));
+
+        final ByteArrayBuffer buf = new ByteArrayBuffer(16);
+        message.writeTo(buf, header);
+
+        assertThatJson(new String(buf.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+            "{"
+            + "\"version\":\"1.1\","
+            + "\"host\":\"host\","
+            + "\"_static\":\"value\","
+            + "\"short_message\":\"short message\","
+            + "\"timestamp\":1584271169.123,"
+            + "\"level\":6,"
+            + "\"_foo\":\"bar\""
+            + "}");
+    }
+
 }
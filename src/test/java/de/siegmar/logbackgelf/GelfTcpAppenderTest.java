@@ -21,15 +21,23 @@ package de.siegmar.logbackgelf;
 
 import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -37,10 +45,12 @@ import java.util.concurrent.TimeoutException;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.LoggerFactory;
 
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.status.Status;
 
 class GelfTcpAppenderTest {
 
@@ -92,6 +102,124 @@ class GelfTcpAppenderTest {
         );
     }
 
+    @Test
+    void spillWhileServerDown(@TempDir final Path spillDirectory) throws IOException {
+        final int messages = 20;
+        final int port = unusedPort();
+        final LoggerContext lc = new LoggerContext();
+        final GelfTcpAppender appender = buildSpillingAppender(lc, port, spillDirectory, false);
+        final Logger logger = lc.getLogger(LOGGER_NAME);
+        logger.addAppender(appender);
+        logger.setAdditive(false);
+
+        try {
+            for (int i = 0; i < messages; i++) {
+                logger.info("Message {}", i);
+            }
+
+            // only the first message is tried to be sent - all others are queued behind it
+            assertThat(appender.getSpilledMessages()).isEqualTo(messages);
+            assertThat(lc.getStatusManager().getCopyOfStatusList())
+                .filteredOn(s -> s.getMessage().contains("spilling messages to"))
+                .singleElement()
+                .satisfies(s -> assertThat(s.getLevel()).isEqualTo(Status.WARN));
+            assertThat(lc.getStatusManager().getCopyOfStatusList())
+                .noneMatch(s -> s.getLevel() == Status.ERROR);
+
+            try (MessageServer messageServer = new MessageServer(port)) {
+                await().until(() -> messageServer.getMessages().size() == messages);
+                assertThat(appender.getSpilledMessages()).isZero();
+
+                for (int i = 0; i < messages; i++) {
+                    assertThatJson(messageServer.getMessages().get(i))
+                        .node("short_message").isEqualTo("Message " + i);
+                }
+            }
+        } finally {
+            appender.stop();
+        }
+    }
+
+    @Test
+    void spillJournal(@TempDir final Path spillDirectory) throws IOException {
+        final int messages = 20;
+        final LoggerContext lc = new LoggerContext();
+
+        try (MessageServer messageServer = new MessageServer(unusedPort())) {
+            final GelfTcpAppender appender = buildSpillingAppender(lc, messageServer.getPort(), spillDirectory, true);
+            final Logger logger = lc.getLogger(LOGGER_NAME);
+            logger.addAppender(appender);
+            logger.setAdditive(false);
+
+            try {
+                for (int i = 0; i < messages; i++) {
+                    logger.info("Message {}", i);
+                }
+
+                await().until(() -> messageServer.getMessages().size() == messages);
+                assertThat(appender.getSpilledMessages()).isZero();
+
+                for (int i = 0; i < messages; i++) {
+                    assertThatJson(messageServer.getMessages().get(i))
+                        .node("short_message").isEqualTo("Message " + i);
+                }
+            } finally {
+                appender.stop();
+            }
+        }
+
+        assertThat(lc.getStatusManager().getCopyOfStatusList())
+            .noneMatch(s -> s.getLevel() >= Status.WARN);
+    }
+
+    @Test
+    void spillDirectoryLocked(@TempDir final Path spillDirectory) throws IOException {
+        final LoggerContext lc = new LoggerContext();
+        final GelfTcpAppender appender = buildSpillingAppender(lc, unusedPort(), spillDirectory, false);
+
+        try {
+            final GelfTcpAppender second = buildSpillingAppender(lc, unusedPort(), spillDirectory, false);
+            assertThat(second.isStarted()).isFalse();
+            assertThat(lc.getStatusManager().getCopyOfStatusList())
+                .filteredOn(s -> s.getLevel() == Status.ERROR)
+                .singleElement()
+                .satisfies(s -> assertThat(s.getThrowable()).hasRootCauseMessage(
+                    "Spill directory " + spillDirectory + " is already in use - lock file "
+                        + spillDirectory.resolve("spill.lock") + " is held by another appender or process"));
+        } finally {
+            appender.stop();
+        }
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static GelfTcpAppender buildSpillingAppender(final LoggerContext lc, final int port,
+                                                         final Path spillDirectory, final boolean spillJournal) {
+        final GelfEncoder gelfEncoder = new GelfEncoder();
+        gelfEncoder.setContext(lc);
+        gelfEncoder.setOriginHost("localhost");
+        gelfEncoder.start();
+
+        final GelfTcpAppender gelfAppender = new GelfTcpAppender();
+        gelfAppender.setContext(lc);
+        gelfAppender.setName("GELF");
+        gelfAppender.setEncoder(gelfEncoder);
+        gelfAppender.setGraylogHost("localhost");
+        gelfAppender.setGraylogPort(port);
+        gelfAppender.setPoolSize(1);
+        gelfAppender.setMaxRetries(0);
+        gelfAppender.setRetryDelay(100);
+        gelfAppender.setSpillDirectory(spillDirectory.toString());
+        gelfAppender.setSpillSegmentSize(64 * 1024);
+        gelfAppender.setSpillJournal(spillJournal);
+        gelfAppender.start();
+        return gelfAppender;
+    }
+
     private Logger setupLogger() {
         final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
 
@@ -169,4 +297,59 @@ class GelfTcpAppenderTest {
 
     }
 
+    private static final class MessageServer implements Closeable {
+
+        private final ServerSocket socket;
+        private final List<Socket> connections = new CopyOnWriteArrayList<>();
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+
+        MessageServer(final int port) throws IOException {
+            socket = new ServerSocket(port);
+            executor.submit(this::accept);
+        }
+
+        int getPort() {
+            return socket.getLocalPort();
+        }
+
+        List<String> getMessages() {
+            return messages;
+        }
+
+        private Void accept() throws IOException {
+            while (!socket.isClosed()) {
+                final Socket connection = socket.accept();
+                connections.add(connection);
+                executor.submit(() -> receive(connection));
+            }
+            return null;
+        }
+
+        private Void receive(final Socket connection) throws IOException {
+            try (InputStream in = new BufferedInputStream(connection.getInputStream())) {
+                final ByteArrayOutputStream message = new ByteArrayOutputStream();
+                for (int b = in.read(); b != -1; b = in.read()) {
+                    if (b == 0) {
+                        messages.add(message.toString(StandardCharsets.UTF_8));
+                        message.reset();
+                    } else {
+                        message.write(b);
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+            for (final Socket connection : connections) {
+                connection.close();
+            }
+            executor.shutdownNow();
+        }
+
+    }
+
 }
@@ -87,6 +87,42 @@ class GelfUdpAppenderTest {
         );
     }
 
+    @Timeout(3)
+    @ParameterizedTest
+    @EnumSource(WaitStrategy.class)
+    void async(final WaitStrategy waitStrategy) throws ExecutionException, InterruptedException, TimeoutException {
+        final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+
+        final GelfEncoder gelfEncoder = new GelfEncoder();
+        gelfEncoder.setContext(lc);
+        gelfEncoder.setOriginHost("localhost");
+        gelfEncoder.start();
+
+        final GelfUdpAppender gelfAppender = new GelfUdpAppender();
+        gelfAppender.setContext(lc);
+        gelfAppender.setName("GELF-ASYNC");
+        gelfAppender.setEncoder(gelfEncoder);
+        gelfAppender.setGraylogHost("localhost");
+        gelfAppender.setGraylogPort(server.getPort());
+        gelfAppender.setCompressionMethod(CompressionMethod.NONE);
+        gelfAppender.setAsync(true);
+        gelfAppender.setAsyncWaitStrategy(waitStrategy);
+        gelfAppender.start();
+
+        final Logger logger = lc.getLogger(LOGGER_NAME + ".async." + waitStrategy);
+        logger.addAppender(gelfAppender);
+        logger.setAdditive(false);
+
+        logger.error("Test message");
+
+        gelfAppender.stop();
+
+        assertThatJson(awaitMessage(CompressionMethod.NONE)).and(
+            j -> j.node("short_message").isEqualTo("Test message"),
+            j -> j.node("level").isEqualTo(3)
+        );
+    }
+
     private Logger setupLogger(final CompressionMethod compressionMethod) {
         final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
 
@@ -55,6 +55,16 @@ class GelfUdpChunkerTest {
         assertThat(chunks).isExhausted();
     }
 
+    @Test
+    void multipleChunksWithOffset() {
+        final GelfUdpChunker chunker = new GelfUdpChunker(new MessageIdSupplier(), 13);
+        final Iterator<? extends ByteBuffer> chunks =
+            chunker.chunks("xxhixx".getBytes(StandardCharsets.UTF_8), 2, 2).iterator();
+        expectedChunk(chunks.next().array(), 0, 2, 'h');
+        expectedChunk(chunks.next().array(), 1, 2, 'i');
+        assertThat(chunks).isExhausted();
+    }
+
     private void expectedChunk(final byte[] data, final int chunkNo, final int chunkCount, final char payload) {
         assertThat(data)
             .startsWith(0x1e, 0x0f)
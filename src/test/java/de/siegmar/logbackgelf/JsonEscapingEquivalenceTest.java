@@ -0,0 +1,170 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Verifies that the optimized escaping of {@link SimpleJsonEncoder} and {@link Utf8JsonEncoder}
+ * (scalar and vectorized) produces the same output as the original char-by-char implementation.
+ */
+class JsonEscapingEquivalenceTest {
+
+    private static final int RANDOM_SAMPLES = 2_000;
+    private static final int LARGE_VALUE_REPETITIONS = 50;
+    private static final String SPECIAL_CHARS = "\"\\/\b\f\n\r\t\u0000\u001f\u007f\u0080ä€😀";
+
+    @SuppressWarnings("checkstyle:avoidescapedunicodecharacters")
+    static Stream<String> samples() {
+        final Random random = new Random(0);
+        return Stream.concat(
+            Stream.of("", "plain ascii", "\"", "\\\\", "//", "\r", "\r\n", "\u0000\u0001",
+                "leading \" and trailing \\", "only\rcarriage\rreturns\r", "Latín-1 äöü",
+                "mixed ä ascii \" run € 😀 \uD83D\r\uDE00 end"),
+            Stream.generate(() -> randomString(random)).limit(RANDOM_SAMPLES)
+        );
+    }
+
+    @SuppressWarnings("checkstyle:magicnumber")
+    private static String randomString(final Random random) {
+        final int len = random.nextInt(random.nextInt(10) == 0 ? 500 : 20);
+        final StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    sb.append(SPECIAL_CHARS.charAt(random.nextInt(SPECIAL_CHARS.length())));
+                    break;
+                case 1:
+                    sb.append((char) random.nextInt(Character.MAX_VALUE + 1));
+                    break;
+                default:
+                    sb.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+
+    @ParameterizedTest
+    @MethodSource("samples")
+    void simpleJsonEncoder(final String value) {
+        final StringBuilder sb = new StringBuilder();
+        new SimpleJsonEncoder(sb).appendToJSON(value, value).close();
+
+        assertThat(sb).hasToString(referenceJson(value));
+    }
+
+    @ParameterizedTest
+    @MethodSource("samples")
+    void utf8JsonEncoder(final String value) {
+        final ByteArrayBuffer buf = new ByteArrayBuffer(16);
+        new Utf8JsonEncoder(buf).appendToJSON(value, value).close();
+
+        assertThat(buf.toByteArray()).isEqualTo(referenceJson(value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @ParameterizedTest
+    @MethodSource("samples")
+    void utf8JsonEncoderLargeValue(final String value) {
+        final String largeValue = value.repeat(LARGE_VALUE_REPETITIONS) + "x".repeat(value.length());
+        final byte[] expected = referenceEscape(largeValue).getBytes(StandardCharsets.UTF_8);
+
+        // tests run with the jdk.incubator.vector module
+        assertThat(EscapeScanners.VECTORIZED).isNotNull();
+
+        final ByteArrayBuffer vectorized = new ByteArrayBuffer(16);
+        Utf8JsonEncoder.escape(vectorized, largeValue, EscapeScanners.VECTORIZED);
+        assertThat(vectorized.toByteArray()).isEqualTo(expected);
+
+        final ByteArrayBuffer scalar = new ByteArrayBuffer(16);
+        Utf8JsonEncoder.escape(scalar, largeValue, null);
+        assertThat(scalar.toByteArray()).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @MethodSource("samples")
+    void utf8JsonEncoderCharSequence(final String value) {
+        final String largeValue = value.repeat(LARGE_VALUE_REPETITIONS);
+
+        for (final String v : List.of(value, largeValue)) {
+            final ByteArrayBuffer buf = new ByteArrayBuffer(16);
+            Utf8JsonEncoder.escape(buf, new StringBuilder(v));
+            assertThat(buf.toByteArray()).isEqualTo(referenceEscape(v).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String referenceJson(final String value) {
+        final String escaped = referenceEscape(value);
+        return "{\"" + escaped + "\":\"" + escaped + "\"}";
+    }
+
+    /**
+     * The original (unoptimized) escaping implementation of {@link SimpleJsonEncoder}.
+     */
+    @SuppressWarnings({
+        "checkstyle:cyclomaticcomplexity",
+        "checkstyle:magicnumber",
+        "PMD.ImplicitSwitchFallThrough",
+        "PMD.AvoidLiteralsInIfCondition"
+    })
+    private static String referenceEscape(final String str) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < str.length(); i++) {
+            final char ch = str.charAt(i);
+            switch (ch) {
+                case '"':
+                case '\\':
+                case '/':
+                    sb.append('\\');
+                    sb.append(ch);
+                    break;
+                case '\b':
+                    sb.append("\\b");
+                    break;
+                case '\f':
+                    sb.append("\\f");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (ch < ' ') {
+                        sb.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        sb.append(ch);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+
+}
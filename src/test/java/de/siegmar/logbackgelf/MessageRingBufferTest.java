@@ -0,0 +1,182 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class MessageRingBufferTest {
+
+    private final List<String> polled = new ArrayList<>();
+    private final EncodedMessageConsumer collector = (message, offset, length) ->
+        polled.add(new String(message, offset, length, StandardCharsets.UTF_8));
+
+    private static boolean offer(final MessageRingBuffer ringBuffer, final String message) {
+        final byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return ringBuffer.offer(bytes, 0, bytes.length);
+    }
+
+    @Test
+    void capacityRoundedUp() {
+        assertThat(new MessageRingBuffer(1, 16).capacity()).isEqualTo(2);
+        assertThat(new MessageRingBuffer(2, 16).capacity()).isEqualTo(2);
+        assertThat(new MessageRingBuffer(1000, 16).capacity()).isEqualTo(1024);
+        assertThatThrownBy(() -> new MessageRingBuffer(0, 16))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void fifo() throws IOException {
+        final MessageRingBuffer ringBuffer = new MessageRingBuffer(4, 16);
+        assertThat(ringBuffer.poll(collector)).isFalse();
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(offer(ringBuffer, "a" + i)).isTrue();
+            assertThat(offer(ringBuffer, "b" + i)).isTrue();
+            assertThat(ringBuffer.size()).isEqualTo(2);
+            assertThat(ringBuffer.poll(collector)).isTrue();
+            assertThat(ringBuffer.poll(collector)).isTrue();
+        }
+
+        assertThat(ringBuffer.poll(collector)).isFalse();
+        assertThat(polled).hasSize(20).startsWith("a0", "b0", "a1", "b1").endsWith("a9", "b9");
+    }
+
+    @Test
+    void full() throws IOException {
+        final MessageRingBuffer ringBuffer = new MessageRingBuffer(2, 16);
+        assertThat(offer(ringBuffer, "first")).isTrue();
+        assertThat(offer(ringBuffer, "second")).isTrue();
+        assertThat(offer(ringBuffer, "third")).isFalse();
+
+        assertThat(ringBuffer.poll(collector)).isTrue();
+        assertThat(offer(ringBuffer, "fourth")).isTrue();
+
+        while (ringBuffer.poll(collector)) {
+            // drain
+        }
+        assertThat(polled).containsExactly("first", "second", "fourth");
+    }
+
+    @Test
+    void oversizedMessage() throws IOException {
+        final MessageRingBuffer ringBuffer = new MessageRingBuffer(2, 4);
+        final byte[] message = "xxoversized messagexx".getBytes(StandardCharsets.UTF_8);
+        assertThat(ringBuffer.offer(message, 2, message.length - 4)).isTrue();
+        assertThat(offer(ringBuffer, "tiny")).isTrue();
+        assertThat(offer(ringBuffer, "again oversized")).isFalse();
+
+        while (ringBuffer.poll(collector)) {
+            // drain
+        }
+        assertThat(polled).containsExactly("oversized message", "tiny");
+    }
+
+    @Test
+    void failingConsumerReleasesSlot() throws IOException {
+        final MessageRingBuffer ringBuffer = new MessageRingBuffer(2, 16);
+        assertThat(offer(ringBuffer, "first")).isTrue();
+        assertThat(offer(ringBuffer, "second")).isTrue();
+
+        assertThatThrownBy(() -> ringBuffer.poll((message, offset, length) -> {
+            throw new IOException("send failed");
+        })).isInstanceOf(IOException.class);
+
+        assertThat(ringBuffer.size()).isOne();
+        assertThat(offer(ringBuffer, "third")).isTrue();
+        while (ringBuffer.poll(collector)) {
+            // drain
+        }
+        assertThat(polled).containsExactly("second", "third");
+    }
+
+    @Test
+    void singleMessageCapacity() throws IOException {
+        final MessageRingBuffer ringBuffer = new MessageRingBuffer(1, 16);
+        assertThat(offer(ringBuffer, "first")).isTrue();
+        assertThat(offer(ringBuffer, "second")).isTrue();
+        assertThat(offer(ringBuffer, "third")).isFalse();
+
+        while (ringBuffer.poll(collector)) {
+            // drain
+        }
+        assertThat(polled).containsExactly("first", "second");
+    }
+
+    @Test
+    @Timeout(10)
+    void concurrentProducers() throws Exception {
+        final int producers = 8;
+        final int messagesPerProducer = 10_000;
+        final MessageRingBuffer ringBuffer = new MessageRingBuffer(64, 16);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                final int producer = p;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < messagesPerProducer; i++) {
+                        while (!offer(ringBuffer, producer + ":" + i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }));
+            }
+
+            final int[] next = new int[producers];
+            final EncodedMessageConsumer verifier = (message, offset, length) -> {
+                final String[] parts = new String(message, offset, length, StandardCharsets.UTF_8).split(":");
+                final int producer = Integer.parseInt(parts[0]);
+                // messages of one producer are polled in order
+                assertThat(Integer.parseInt(parts[1])).isEqualTo(next[producer]++);
+            };
+
+            int received = 0;
+            while (received < producers * messagesPerProducer) {
+                if (ringBuffer.poll(verifier)) {
+                    received++;
+                }
+            }
+
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+            assertThat(ringBuffer.poll(verifier)).isFalse();
+            assertThat(next).containsOnly(messagesPerProducer);
+            assertThat(Arrays.stream(next).sum()).isEqualTo(producers * messagesPerProducer);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("PMD.AvoidDuplicateLiterals")
+class MessageTruncatorTest {
+
+    private final ByteArrayBuffer buf = new ByteArrayBuffer(4);
+
+    private void encode(final String fullMessage, final String field) {
+        try (var enc = new Utf8JsonEncoder(buf)) {
+            enc.appendToJSON("short_message", "short");
+            enc.appendToJSON("full_message", fullMessage);
+            enc.appendToJSONUnquoted("level", 3);
+            enc.appendToJSON('_', "field", field);
+        }
+    }
+
+    private String json() {
+        return new String(buf.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void notTruncated() {
+        encode("full", "value");
+        final String json = json();
+
+        assertThat(MessageTruncator.truncate(buf, 0, buf.size())).isFalse();
+        assertThat(json()).isEqualTo(json);
+    }
+
+    @Test
+    void fullMessageTruncatedFirst() {
+        encode("full message that is long enough", "value");
+        final int size = buf.size();
+
+        assertThat(MessageTruncator.truncate(buf, 0, size - 1)).isTrue();
+        assertThat(json()).isEqualTo("{\"short_message\":\"short\",\"full_message\":\"full messag\","
+            + "\"level\":3,\"_field\":\"value\",\"_truncated\":\"true\"}");
+        assertThat(buf.size()).isEqualTo(size - 1);
+    }
+
+    @Test
+    void additionalFieldTruncated() {
+        encode("full", "a long value of the additional field");
+
+        MessageTruncator.truncate(buf, 0, buf.size() - 10);
+        assertThat(json()).isEqualTo("{\"short_message\":\"short\",\"full_message\":\"\","
+            + "\"level\":3,\"_field\":\"a long val\",\"_truncated\":\"true\"}");
+    }
+
+    @Test
+    void notAJsonObject() {
+        encode("full message that is long enough", "value");
+        buf.write('\n');
+        final String json = json();
+
+        assertThat(MessageTruncator.truncate(buf, 0, buf.size() - 10)).isFalse();
+        assertThat(json()).isEqualTo(json);
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:avoidescapedunicodecharacters")
+    void characterBoundaries() {
+        final String fullMessage = "x".repeat(30) + "a\"ä€😀\n\u0001";
+        encode(fullMessage, "value");
+        final int size = buf.size();
+
+        for (int maxSize = size - 1; maxSize > size - 30; maxSize--) {
+            buf.reset();
+            encode(fullMessage, "value");
+            MessageTruncator.truncate(buf, 0, maxSize);
+
+            assertThat(buf.size()).isLessThanOrEqualTo(maxSize);
+            assertThat(json())
+                .doesNotContain("\uFFFD")
+                .matches(".*\"full_message\":\"x*(a(\\\\\"(ä(€(😀(\\\\n)?)?)?)?)?)?\".*");
+        }
+    }
+
+    @Test
+    void offset() {
+        buf.write('x');
+        encode("full message that is long enough", "value");
+
+        MessageTruncator.truncate(buf, 1, buf.size() - 2);
+        assertThat(json()).startsWith("x{").contains("\"full_message\":\"full messag\"")
+            .endsWith("\"_truncated\":\"true\"}");
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class NumberScannerTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "1", "-1", "123", "-123.450", "0.000", "0.000001", "9223372036854775808"})
+    void canonical(final String value) {
+        assertThat(NumberScanner.scan(value)).isEqualTo(NumberScanner.Result.CANONICAL);
+        assertThat(new BigDecimal(value)).hasToString(value);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"-0", "-0.0", "007", "+1", "1.", ".5", "1e5", "1E-5", "0.0000001", "\u0663"})
+    void nonCanonical(final String value) {
+        assertThat(NumberScanner.scan(value)).isEqualTo(NumberScanner.Result.NON_CANONICAL);
+        assertThat(new BigDecimal(value).toString()).isNotEqualTo(value);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", " ", "-", ".", "1e", "1e+", "1 ", " 1", "1-", "0x10", "NaN", "Infinity",
+        "550e8400-e29b-41d4-a716-446655440000", "4bf92f3577b34da6a3ce929d0e0e4736", "user-42"})
+    void none(final String value) {
+        assertThat(NumberScanner.scan(value)).isEqualTo(NumberScanner.Result.NONE);
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import ch.qos.logback.classic.Level;
+
+class OverflowHandlerTest {
+
+    private final List<String> polled = new ArrayList<>();
+    private final EncodedMessageConsumer collector = (message, offset, length) ->
+        polled.add(new String(message, offset, length, StandardCharsets.UTF_8));
+
+    private static boolean offer(final MessageRingBuffer ringBuffer, final String message) {
+        final byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return ringBuffer.offer(bytes, 0, bytes.length);
+    }
+
+    private static boolean overflow(final OverflowHandler handler, final MessageRingBuffer ringBuffer,
+                                    final String message) {
+        final byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return handler.overflow(ringBuffer, bytes, 0, bytes.length);
+    }
+
+    private static MessageRingBuffer fullBuffer(final int capacity) {
+        final MessageRingBuffer ringBuffer = new MessageRingBuffer(capacity, 16);
+        for (int i = 0; i < capacity; i++) {
+            assertThat(offer(ringBuffer, "m" + i)).isTrue();
+        }
+        return ringBuffer;
+    }
+
+    private void drain(final MessageRingBuffer ringBuffer) throws IOException {
+        while (ringBuffer.poll(collector)) {
+            // drain
+        }
+    }
+
+    @Test
+    void dropNewest() throws IOException {
+        final OverflowHandler handler = new OverflowHandler(OverflowPolicy.DROP_NEWEST, 0, Level.WARN);
+        final MessageRingBuffer ringBuffer = fullBuffer(2);
+
+        assertThat(overflow(handler, ringBuffer, "new")).isFalse();
+
+        drain(ringBuffer);
+        assertThat(polled).containsExactly("m0", "m1");
+        assertThat(handler.getDroppedMessages(OverflowPolicy.DROP_NEWEST)).isOne();
+        assertThat(handler.getDroppedMessages()).isOne();
+    }
+
+    @Test
+    void dropOldest() throws IOException {
+        final OverflowHandler handler = new OverflowHandler(OverflowPolicy.DROP_OLDEST, 0, Level.WARN);
+        final MessageRingBuffer ringBuffer = fullBuffer(2);
+
+        assertThat(overflow(handler, ringBuffer, "new")).isTrue();
+
+        drain(ringBuffer);
+        assertThat(polled).containsExactly("m1", "new");
+        assertThat(handler.getDroppedMessages(OverflowPolicy.DROP_OLDEST)).isOne();
+        assertThat(handler.getDroppedMessages()).isOne();
+    }
+
+    @Test
+    void blockTimeout() throws IOException {
+        final OverflowHandler handler = new OverflowHandler(OverflowPolicy.BLOCK, 10, Level.WARN);
+        final MessageRingBuffer ringBuffer = fullBuffer(2);
+
+        assertThat(overflow(handler, ringBuffer, "new")).isFalse();
+
+        drain(ringBuffer);
+        assertThat(polled).containsExactly("m0", "m1");
+        assertThat(handler.getDroppedMessages(OverflowPolicy.BLOCK)).isOne();
+    }
+
+    @Test
+    @Timeout(10)
+    void blockUntilFree() throws IOException {
+        final OverflowHandler handler = new OverflowHandler(OverflowPolicy.BLOCK, 5_000, Level.WARN);
+        final MessageRingBuffer ringBuffer = fullBuffer(2);
+
+        CompletableFuture.runAsync(() -> {
+            try {
+                ringBuffer.poll(collector);
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+
+        assertThat(overflow(handler, ringBuffer, "new")).isTrue();
+
+        drain(ringBuffer);
+        assertThat(polled).containsExactly("m0", "m1", "new");
+        assertThat(handler.getDroppedMessages()).isZero();
+    }
+
+    @Test
+    void blockWithoutBusySpinning() {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        final OverflowHandler handler = new OverflowHandler(OverflowPolicy.BLOCK, 500, Level.WARN);
+        final MessageRingBuffer ringBuffer = fullBuffer(2);
+
+        final long cpuTime = threadMXBean.getCurrentThreadCpuTime();
+        assertThat(overflow(handler, ringBuffer, "new")).isFalse();
+
+        // a spinning thread would consume (about) the whole block timeout
+        assertThat(threadMXBean.getCurrentThreadCpuTime() - cpuTime)
+            .isLessThan(TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    @Test
+    @Timeout(10)
+    void blockInterrupted() {
+        final OverflowHandler handler = new OverflowHandler(OverflowPolicy.BLOCK, 60_000, Level.WARN);
+        final MessageRingBuffer ringBuffer = fullBuffer(2);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThat(overflow(handler, ringBuffer, "new")).isFalse();
+            assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+        assertThat(handler.getDroppedMessages(OverflowPolicy.BLOCK)).isOne();
+    }
+
+    @Test
+    void dropBelowLevel() throws IOException {
+        final OverflowHandler handler = new OverflowHandler(OverflowPolicy.DROP_BELOW_LEVEL, 0, Level.WARN);
+        final MessageRingBuffer ringBuffer = new MessageRingBuffer(8, 16);
+        for (int i = 0; i < 6; i++) {
+            assertThat(offer(ringBuffer, "m" + i)).isTrue();
+        }
+        assertThat(handler.discard(Level.INFO, ringBuffer)).isFalse();
+
+        // the last fifth of the queue is reserved for WARN and ERROR
+        assertThat(offer(ringBuffer, "m6")).isTrue();
+        assertThat(handler.discard(Level.DEBUG, ringBuffer)).isTrue();
+        assertThat(handler.discard(Level.INFO, ringBuffer)).isTrue();
+        assertThat(handler.discard(Level.WARN, ringBuffer)).isFalse();
+        assertThat(handler.discard(Level.ERROR, ringBuffer)).isFalse();
+
+        assertThat(offer(ringBuffer, "m7")).isTrue();
+        assertThat(overflow(handler, ringBuffer, "new")).isFalse();
+
+        drain(ringBuffer);
+        assertThat(polled).hasSize(8).endsWith("m7");
+        assertThat(handler.getDroppedMessages(OverflowPolicy.DROP_BELOW_LEVEL)).isEqualTo(2);
+        assertThat(handler.getDroppedMessages(OverflowPolicy.DROP_NEWEST)).isOne();
+        assertThat(handler.getDroppedMessages()).isEqualTo(3);
+    }
+
+    @Test
+    void noDiscardWithOtherPolicies() {
+        final MessageRingBuffer ringBuffer = fullBuffer(2);
+        for (final OverflowPolicy policy : OverflowPolicy.values()) {
+            final OverflowHandler handler = new OverflowHandler(policy, 0, Level.WARN);
+            assertThat(handler.discard(Level.DEBUG, ringBuffer))
+                .isEqualTo(policy == OverflowPolicy.DROP_BELOW_LEVEL);
+        }
+    }
+
+}
@@ -22,6 +22,7 @@ package de.siegmar.logbackgelf;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
@@ -46,6 +47,18 @@ class RetryUtilTest {
         assertThat(counter).hasValue(1);
     }
 
+    @Test
+    void shouldStopWaitingWhenConditionBecomesFalse() {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        final long start = System.nanoTime();
+        assertThatThrownBy(() -> RetryUtil.retry(() -> incCounter(counter),
+            () -> deadline - System.nanoTime() > 0, 5, 60_000))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Retry");
+        assertThat(counter).hasValue(1);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(30));
+    }
+
     private static int incCounter(final AtomicInteger counter) {
         final int i = counter.incrementAndGet();
         if (i > 0) {
@@ -0,0 +1,287 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.ContextAwareBase;
+
+class SpillQueueTest {
+
+    @TempDir
+    private Path directory;
+
+    private final ContextAwareBase status = new ContextAwareBase();
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private volatile boolean available;
+
+    private final EncodedMessageConsumer sender = (message, offset, length) -> {
+        if (!available) {
+            throw new IOException("Destination unavailable");
+        }
+        received.add(new String(message, offset, length, StandardCharsets.UTF_8));
+    };
+
+    @BeforeEach
+    void before() {
+        status.setContext(new LoggerContext());
+    }
+
+    private static boolean append(final SpillQueue queue, final String message) throws IOException {
+        final byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return queue.append(bytes, 0, bytes.length);
+    }
+
+    private static long deadline() {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".seg")).count();
+        }
+    }
+
+    @Test
+    void replayInOrder() throws IOException {
+        final SpillQueue queue = new SpillQueue(directory, 1024, 4096, 10, sender, status);
+        queue.start();
+
+        assertThat(queue.isEmpty()).isTrue();
+        for (int i = 0; i < 100; i++) {
+            assertThat(append(queue, "message " + i)).isTrue();
+        }
+        assertThat(queue.isEmpty()).isFalse();
+
+        available = true;
+        await().until(queue::isEmpty);
+
+        assertThat(received).hasSize(100).startsWith("message 0", "message 1").endsWith("message 99");
+        assertThat(queue.stop(deadline())).isZero();
+    }
+
+    @Test
+    void segmentsDeletedAfterReplay() throws IOException {
+        // room for a single message per segment
+        final SpillQueue queue = new SpillQueue(directory, 24, 1024, 10, sender, status);
+        queue.start();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(append(queue, "message" + i)).isTrue();
+        }
+        assertThat(segmentFiles()).isEqualTo(5);
+
+        available = true;
+        await().until(queue::isEmpty);
+
+        assertThat(received).containsExactly("message0", "message1", "message2", "message3", "message4");
+        assertThat(segmentFiles()).isOne();
+        queue.stop(deadline());
+    }
+
+    @Test
+    void evictOldestSegment() throws IOException {
+        // the drainer is not started - room for a single message per segment and two segments
+        final SpillQueue queue = new SpillQueue(directory, 24, 48, 10, sender, status);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(append(queue, "message" + i)).isTrue();
+        }
+
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.getDroppedMessages()).isEqualTo(2);
+        assertThat(segmentFiles()).isEqualTo(2);
+    }
+
+    @Test
+    void oversizedMessage() throws IOException {
+        final SpillQueue queue = new SpillQueue(directory, 24, 1024, 10, sender, status);
+
+        assertThat(append(queue, "message that exceeds the segment")).isFalse();
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(queue.getDroppedMessages()).isOne();
+    }
+
+    @Test
+    void recoverAfterRestart() throws IOException {
+        final SpillQueue queue = new SpillQueue(directory, 1024, 4096, 10, sender, status);
+        queue.start();
+        for (int i = 0; i < 3; i++) {
+            assertThat(append(queue, "message " + i)).isTrue();
+        }
+        assertThat(queue.stop(deadline())).isEqualTo(3);
+
+        available = true;
+        final SpillQueue restarted = new SpillQueue(directory, 1024, 4096, 10, sender, status);
+        restarted.start();
+        await().until(restarted::isEmpty);
+
+        assertThat(received).containsExactly("message 0", "message 1", "message 2");
+        assertThat(restarted.stop(deadline())).isZero();
+    }
+
+    @Test
+    void replayedMessagesNotRecovered() throws IOException {
+        available = true;
+        final SpillQueue queue = new SpillQueue(directory, 1024, 4096, 10, sender, status);
+        queue.start();
+        assertThat(append(queue, "replayed 1")).isTrue();
+        assertThat(append(queue, "replayed 2")).isTrue();
+        await().until(queue::isEmpty);
+
+        available = false;
+        assertThat(append(queue, "pending")).isTrue();
+        assertThat(queue.stop(deadline())).isOne();
+
+        available = true;
+        final SpillQueue restarted = new SpillQueue(directory, 1024, 4096, 10, sender, status);
+        restarted.start();
+        await().until(restarted::isEmpty);
+
+        assertThat(received).containsExactly("replayed 1", "replayed 2", "pending");
+        restarted.stop(deadline());
+    }
+
+    @Test
+    void recoverUpToCorruptRecord() throws IOException {
+        // the drainer is not started
+        final SpillQueue queue = new SpillQueue(directory, 1024, 4096, 10, sender, status);
+        assertThat(append(queue, "message 0")).isTrue();
+        assertThat(append(queue, "message 1")).isTrue();
+        assertThat(append(queue, "message 2")).isTrue();
+
+        // flip the last byte of the second message - header (8 bytes) + message (9 bytes) + header + 8
+        final Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), 8 + 9 + 8 + 8);
+        }
+
+        available = true;
+        final SpillQueue restarted = new SpillQueue(directory, 1024, 4096, 10, sender, status);
+        restarted.start();
+        await().until(restarted::isEmpty);
+
+        assertThat(received).containsExactly("message 0");
+        restarted.stop(deadline());
+    }
+
+    @Test
+    void replayRate() throws IOException {
+        final SpillQueue queue = new SpillQueue(directory, 1024, 4096, 10, sender, status);
+        for (int i = 0; i < 5; i++) {
+            assertThat(append(queue, "message " + i)).isTrue();
+        }
+
+        available = true;
+        final SpillQueue restarted = new SpillQueue(directory, 1024, 4096, 10, sender, status);
+        restarted.setReplay(20, false);
+        final long start = System.nanoTime();
+        restarted.start();
+        await().until(restarted::isEmpty);
+
+        // 4 intervals of 50 ms between 5 messages
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+        assertThat(received).hasSize(5);
+        restarted.stop(deadline());
+    }
+
+    @Test
+    void replayInterleaved() throws IOException {
+        final SpillQueue queue = new SpillQueue(directory, 1024, 4096, 10, sender, status);
+        for (int i = 0; i < 3; i++) {
+            assertThat(append(queue, "recovered " + i)).isTrue();
+        }
+
+        final SpillQueue restarted = new SpillQueue(directory, 1024, 4096, 10, sender, status);
+        restarted.setReplay(1, true);
+        restarted.start();
+
+        // new messages don't have to wait for the recovered ones
+        assertThat(restarted.isEmpty()).isTrue();
+        assertThat(restarted.size()).isEqualTo(3);
+
+        assertThat(append(restarted, "new")).isTrue();
+        assertThat(restarted.isEmpty()).isFalse();
+        assertThat(restarted.stop(deadline())).isEqualTo(4);
+    }
+
+    @Test
+    void drainOnStop() throws IOException {
+        final SpillQueue queue = new SpillQueue(directory, 1024, 1 << 20, 10, sender, status);
+        queue.start();
+        for (int i = 0; i < 1000; i++) {
+            assertThat(append(queue, "message " + i)).isTrue();
+        }
+
+        available = true;
+        assertThat(queue.stop(System.nanoTime() + TimeUnit.SECONDS.toNanos(10))).isZero();
+        assertThat(received).hasSize(1000);
+    }
+
+    @Test
+    void remainingOnStop() throws IOException {
+        final SpillQueue queue = new SpillQueue(directory, 1024, 4096, 10, sender, status);
+        queue.start();
+        assertThat(append(queue, "message")).isTrue();
+
+        assertThat(queue.stop(deadline())).isOne();
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    void directoryLocked() throws IOException {
+        final SpillQueue queue = new SpillQueue(directory, 1024, 4096, 10, sender, status);
+        queue.start();
+
+        final SpillQueue second = new SpillQueue(directory, 1024, 4096, 10, sender, status);
+        assertThatThrownBy(second::start)
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("is already in use");
+
+        // the lock is released on stop
+        queue.stop(deadline());
+        final SpillQueue third = new SpillQueue(directory, 1024, 4096, 10, sender, status);
+        third.start();
+        third.stop(deadline());
+    }
+
+}
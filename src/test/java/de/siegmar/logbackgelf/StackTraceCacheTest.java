@@ -0,0 +1,139 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+
+class StackTraceCacheTest {
+
+    /**
+     * Creates throwables from the same call site - they have the same stack trace.
+     */
+    private static IThrowableProxy[] proxies(final String message, final Throwable cause) {
+        final IThrowableProxy[] proxies = new IThrowableProxy[2];
+        for (int i = 0; i < proxies.length; i++) {
+            proxies[i] = new ThrowableProxy(new IllegalStateException(message, cause));
+        }
+        return proxies;
+    }
+
+    /**
+     * Creates throwables with a cause from the same call site - they only differ in the cause message.
+     */
+    private static IThrowableProxy[] withCauses(final String... causeMessages) {
+        final IThrowableProxy[] proxies = new IThrowableProxy[causeMessages.length];
+        for (int i = 0; i < proxies.length; i++) {
+            proxies[i] = new ThrowableProxy(new IllegalStateException("foo", new IOException(causeMessages[i])));
+        }
+        return proxies;
+    }
+
+    @Test
+    void sameFingerprintForEqualThrowables() {
+        final IThrowableProxy[] proxies = proxies("foo", null);
+
+        assertThat(StackTraceCache.fingerprint(proxies[0]))
+            .isEqualTo(StackTraceCache.fingerprint(proxies[1]));
+    }
+
+    @Test
+    void differentFingerprints() {
+        final long fingerprint = StackTraceCache.fingerprint(proxies("foo", null)[0]);
+
+        assertThat(StackTraceCache.fingerprint(proxies("bar", null)[0])).isNotEqualTo(fingerprint);
+        assertThat(StackTraceCache.fingerprint(proxies("foo", new IOException())[0])).isNotEqualTo(fingerprint);
+        assertThat(StackTraceCache.fingerprint(new ThrowableProxy(new IllegalStateException("foo"))))
+            .isNotEqualTo(fingerprint);
+    }
+
+    @Test
+    void computeIfAbsent() {
+        final StackTraceCache cache = new StackTraceCache(16);
+        final IThrowableProxy[] foo = proxies("foo", null);
+        final byte[] first = {1};
+
+        assertThat(cache.computeIfAbsent(foo[0], () -> first)).isSameAs(first);
+        assertThat(cache.computeIfAbsent(foo[1], () -> new byte[]{2})).isSameAs(first);
+        assertThat(cache.computeIfAbsent(proxies("bar", null)[0], () -> new byte[]{3})).containsExactly(3);
+
+        assertThat(cache.getHits()).isOne();
+        assertThat(cache.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    void fingerprintCollisionNotServed() {
+        // "Aa" and "BB" have the same String hash code - so the fingerprints of the throwables collide
+        final IThrowableProxy[] proxies = withCauses("Aa", "BB", "BB");
+        assertThat(StackTraceCache.fingerprint(proxies[0])).isEqualTo(StackTraceCache.fingerprint(proxies[1]));
+
+        final StackTraceCache cache = new StackTraceCache(16);
+        cache.computeIfAbsent(proxies[0], () -> new byte[]{1});
+
+        assertThat(cache.computeIfAbsent(proxies[1], () -> new byte[]{2})).containsExactly(2);
+        assertThat(cache.computeIfAbsent(proxies[2], () -> new byte[]{3})).containsExactly(2);
+        assertThat(cache.getHits()).isOne();
+        assertThat(cache.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    void stripedCache() {
+        final int count = 64;
+        final String[] causeMessages = new String[count * 2];
+        for (int i = 0; i < causeMessages.length; i++) {
+            causeMessages[i] = "cause " + i % count;
+        }
+        final IThrowableProxy[] proxies = withCauses(causeMessages);
+
+        final StackTraceCache cache = new StackTraceCache(1024);
+        for (int i = 0; i < count; i++) {
+            final byte[] rendered = {(byte) i};
+            assertThat(cache.computeIfAbsent(proxies[i], () -> rendered)).isSameAs(rendered);
+        }
+        for (int i = 0; i < count; i++) {
+            assertThat(cache.computeIfAbsent(proxies[count + i], () -> new byte[0])).containsExactly(i);
+        }
+
+        assertThat(cache.getHits()).isEqualTo(count);
+        assertThat(cache.getMisses()).isEqualTo(count);
+    }
+
+    @Test
+    void leastRecentlyUsedEvicted() {
+        final StackTraceCache cache = new StackTraceCache(2);
+        final IThrowableProxy foo = proxies("foo", null)[0];
+        final IThrowableProxy bar = proxies("bar", null)[0];
+
+        cache.computeIfAbsent(foo, () -> new byte[]{1});
+        cache.computeIfAbsent(bar, () -> new byte[]{2});
+        cache.computeIfAbsent(foo, () -> new byte[]{1});
+        cache.computeIfAbsent(proxies("baz", null)[0], () -> new byte[]{3});
+
+        assertThat(cache.computeIfAbsent(foo, () -> new byte[]{4})).containsExactly(1);
+        assertThat(cache.computeIfAbsent(bar, () -> new byte[]{5})).containsExactly(5);
+    }
+
+}
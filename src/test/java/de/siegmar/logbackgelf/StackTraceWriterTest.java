@@ -0,0 +1,122 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+
+class StackTraceWriterTest {
+
+    private final IThrowableProxy throwableProxy =
+        new ThrowableProxy(new IllegalStateException("Example", cause()));
+
+    private static IOException cause() {
+        return new IOException("Cause");
+    }
+
+    @Test
+    void unlimitedSameAsThrowableProxyUtil() {
+        final StackTraceWriter writer = new StackTraceWriter(List.of(), 0, 0);
+
+        assertThat(writer.toString(throwableProxy)).isEqualTo(ThrowableProxyUtil.asString(throwableProxy));
+    }
+
+    @Test
+    void nullMessageSameAsThrowableProxyUtil() {
+        final StackTraceWriter writer = new StackTraceWriter(List.of(), 0, 0);
+        final IThrowableProxy withoutMessage = new ThrowableProxy(new IllegalStateException(new IOException()));
+
+        assertThat(writer.toString(withoutMessage))
+            .isEqualTo(ThrowableProxyUtil.asString(withoutMessage))
+            .contains("Caused by: java.io.IOException: null");
+    }
+
+    @Test
+    void escaped() {
+        final StackTraceWriter writer = new StackTraceWriter(List.of(), 0, 0);
+
+        assertThat(new String(writer.toEscapedBytes(throwableProxy), StandardCharsets.UTF_8))
+            .isEqualTo(new String(Utf8JsonEncoder.escape(writer.toString(throwableProxy)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void filtered() {
+        final StackTraceWriter writer = new StackTraceWriter(List.of("org.junit."), 0, 0);
+
+        assertThat(writer.toString(throwableProxy))
+            .startsWith("java.lang.IllegalStateException: Example")
+            .contains("Caused by: java.io.IOException: Cause")
+            .contains(" skipped]")
+            .doesNotContain("at org.junit.");
+    }
+
+    @Test
+    void maxDepth() {
+        final StackTraceWriter writer = new StackTraceWriter(List.of(), 1, 0);
+
+        // one frame of the throwable and one of its cause
+
+        assertThat(writer.toString(throwableProxy).lines())
+            .filteredOn(l -> l.startsWith("\tat "))
+            .hasSize(2);
+        assertThat(writer.toString(throwableProxy)).contains(" frames omitted");
+    }
+
+    @Test
+    void skippedFramesBeforeMaxDepthOmitted() {
+        final IllegalStateException e = new IllegalStateException("Example");
+        e.setStackTrace(new StackTraceElement[]{
+            new StackTraceElement("com.example.A", "a", "A.java", 1),
+            new StackTraceElement("sun.reflect.B", "b", "B.java", 2),
+            new StackTraceElement("sun.reflect.C", "c", "C.java", 3),
+            new StackTraceElement("com.example.D", "d", "D.java", 4),
+            new StackTraceElement("com.example.E", "e", "E.java", 5),
+        });
+        final StackTraceWriter writer = new StackTraceWriter(List.of("sun.reflect."), 1, 0);
+
+        // the two skipped frames and the two frames after the cutoff
+        assertThat(writer.toString(new ThrowableProxy(e)))
+            .contains("\tat com.example.A.a(A.java:1)" + System.lineSeparator() + "\t... 4 frames omitted")
+            .doesNotContain(" skipped]");
+    }
+
+    @Test
+    void maxBytes() {
+        final StackTraceWriter writer = new StackTraceWriter(List.of(), 0, 300);
+
+        final byte[] escaped = writer.toEscapedBytes(throwableProxy);
+        assertThat(escaped.length).isLessThanOrEqualTo(300);
+        assertThat(new String(escaped, StandardCharsets.UTF_8))
+            .startsWith("java.lang.IllegalStateException: Example\\n")
+            .endsWith(StackTraceWriter.TRUNCATION_MARKER + "\\n");
+        assertThat(writer.toString(throwableProxy))
+            .endsWith(StackTraceWriter.TRUNCATION_MARKER + System.lineSeparator());
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class StripedPoolTest {
+
+    private final StripedPool<ByteArrayBuffer> pool = StripedPool.ofBuffers(16, 64);
+
+    @Test
+    void reuse() {
+        final ByteArrayBuffer buf = pool.borrow();
+        buf.write(new byte[]{1, 2, 3});
+        pool.release(buf);
+
+        final ByteArrayBuffer reused = pool.borrow();
+        assertThat(reused).isSameAs(buf);
+        assertThat(reused.size()).isZero();
+    }
+
+    @Test
+    void borrowedBufferIsNotShared() {
+        final ByteArrayBuffer first = pool.borrow();
+        final ByteArrayBuffer second = pool.borrow();
+        assertThat(second).isNotSameAs(first);
+    }
+
+    @Test
+    void discardOversizedBuffer() {
+        final ByteArrayBuffer buf = pool.borrow();
+        buf.write(new byte[128]);
+        pool.release(buf);
+
+        final ByteArrayBuffer next = pool.borrow();
+        assertThat(next).isNotSameAs(buf);
+        assertThat(next.capacity()).isEqualTo(16);
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@SuppressWarnings("PMD.AvoidDuplicateLiterals")
+class Utf8JsonEncoderTest {
+
+    private final ByteArrayBuffer buf = new ByteArrayBuffer(4);
+    private final Utf8JsonEncoder enc = new Utf8JsonEncoder(buf);
+
+    @Test
+    void unquoted() {
+        enc.appendToJSONUnquoted("aaa", 123).close();
+        assertThat(json()).isEqualTo("{\"aaa\":123}");
+    }
+
+    @Test
+    void string() {
+        enc.appendToJSON("aaa", "bbb").close();
+        assertThat(json()).isEqualTo("{\"aaa\":\"bbb\"}");
+    }
+
+    @Test
+    void number() {
+        enc.appendToJSON("aaa", 123).close();
+        assertThat(json()).isEqualTo("{\"aaa\":123}");
+    }
+
+    @Test
+    void negativeNumber() {
+        enc.appendToJSONUnquoted("aaa", Integer.MIN_VALUE).close();
+        assertThat(json()).isEqualTo("{\"aaa\":-2147483648}");
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 5, 999, 1000, 1001, -1, -999, -1000, -1500, 1_584_271_169_123L,
+        Long.MAX_VALUE, Long.MIN_VALUE})
+    void timestamp(final long timestamp) {
+        enc.appendTimestamp("timestamp", timestamp).close();
+        assertThat(json()).isEqualTo("{\"timestamp\":"
+            + new BigDecimal(timestamp).movePointLeft(3).toPlainString() + "}");
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, -1, 42, 1_584_271_169_123L, Long.MAX_VALUE, Long.MIN_VALUE})
+    void primitiveLong(final long value) {
+        enc.appendToJSON('_', "aaa", value).close();
+        assertThat(json()).isEqualTo(boxed(value));
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0, -0.0, 1, -5, 1.5, -123.456, 9_999_999, 10_000_000, 1e-5, 1e300,
+        Double.MAX_VALUE, Double.MIN_VALUE})
+    void primitiveDouble(final double value) {
+        enc.appendToJSON('_', "aaa", value).close();
+        assertThat(json()).isEqualTo(boxed(value));
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY})
+    void nonFiniteDouble(final double value) {
+        enc.appendToJSON('_', "aaa", value);
+        enc.appendToJSON('_', "bbb", (Object) value).close();
+        assertThat(json()).isEqualTo("{\"_aaa\":\"" + value + "\",\"_bbb\":\"" + value + "\"}");
+    }
+
+    @Test
+    void primitiveBoolean() {
+        enc.appendToJSON('_', "aaa", true);
+        enc.appendToJSON('_', "bbb", false).close();
+        assertThat(json()).isEqualTo("{\"_aaa\":\"true\",\"_bbb\":\"false\"}");
+    }
+
+    @ParameterizedTest
+    @SuppressWarnings("checkstyle:avoidescapedunicodecharacters")
+    @ValueSource(strings = {"", "plain ascii", "quote \" backslash \\ solidus /", "\b\f\n\r\t\u0000\u001f\u007f"})
+    void asciiBytes(final String value) {
+        enc.appendToJSON('_', "aaa", value.getBytes(StandardCharsets.US_ASCII)).close();
+        assertThat(json()).isEqualTo(boxed(value));
+    }
+
+    private static String boxed(final Object value) {
+        final ByteArrayBuffer boxedBuf = new ByteArrayBuffer(4);
+        new Utf8JsonEncoder(boxedBuf).appendToJSON('_', "aaa", value).close();
+        return new String(boxedBuf.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void carriageReturn() {
+        enc.appendToJSON("aaa", "\r\n").close();
+        assertThat(json()).isEqualTo("{\"aaa\":\"\\n\"}");
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:avoidescapedunicodecharacters")
+    void unicode() {
+        enc.appendToJSON("\u0002", "\u0007\u0019").close();
+        assertThat(json()).isEqualTo("{\"\\u0002\":\"\\u0007\\u0019\"}");
+    }
+
+    @Test
+    void multipleFields() {
+        enc.appendToJSONUnquoted("aaa", 123);
+        enc.appendToJSON("bbb", "ccc");
+        enc.appendToJSON("ddd", 123);
+        enc.appendToJSON("eee", null);
+        enc.close();
+
+        assertThat(json()).isEqualTo("{\"aaa\":123,\"bbb\":\"ccc\",\"ddd\":123}");
+    }
+
+    @Test
+    void appendToJSONClosed() {
+        enc.close();
+
+        assertThatThrownBy(() -> enc.appendToJSON("field", "value"))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    @ParameterizedTest
+    @SuppressWarnings("checkstyle:avoidescapedunicodecharacters")
+    @ValueSource(strings = {
+        "", "plain ascii", "quote \" backslash \\ solidus /", "\b\f\n\r\t\u0000\u001f\u007f",
+        "umlauts äöü ß", "euro € and cjk 日本語", "emoji \uD83D\uDE00", "lone surrogates \uD83D x \uDE00",
+        "surrogate pair split by cr \uD83D\r\uDE00"
+    })
+    void sameAsSimpleJsonEncoder(final String value) {
+        enc.appendToJSON(value, value).close();
+
+        final StringBuilder sb = new StringBuilder();
+        new SimpleJsonEncoder(sb).appendToJSON(value, value).close();
+
+        assertThat(buf.toByteArray()).isEqualTo(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String json() {
+        return new String(buf.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class WaitStrategyTest {
+
+    @Test
+    void nextIdleCount() {
+        assertThat(WaitStrategy.nextIdleCount(0)).isOne();
+        assertThat(WaitStrategy.nextIdleCount(Integer.MAX_VALUE - 1)).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    void idleCountSaturates() {
+        assertThat(WaitStrategy.nextIdleCount(Integer.MAX_VALUE)).isEqualTo(Integer.MAX_VALUE);
+    }
+
+}
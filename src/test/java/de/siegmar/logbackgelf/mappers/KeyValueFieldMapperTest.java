@@ -0,0 +1,116 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf.mappers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import de.siegmar.logbackgelf.GelfFieldSink;
+
+class KeyValueFieldMapperTest {
+
+    private final RecordingSink sink = new RecordingSink();
+
+    @Test
+    void integralValues() {
+        KeyValueFieldMapper.streamValue(sink, "long", 42L);
+        KeyValueFieldMapper.streamValue(sink, "int", 42);
+        KeyValueFieldMapper.streamValue(sink, "short", (short) 42);
+        KeyValueFieldMapper.streamValue(sink, "byte", (byte) 42);
+
+        assertThat(sink.fields).containsExactly("long:long=42", "long:int=42", "long:short=42", "long:byte=42");
+    }
+
+    @Test
+    void doubleValue() {
+        KeyValueFieldMapper.streamValue(sink, "double", 1.5);
+
+        assertThat(sink.fields).containsExactly("double:double=1.5");
+    }
+
+    @Test
+    void booleanValue() {
+        KeyValueFieldMapper.streamValue(sink, "boolean", true);
+
+        assertThat(sink.fields).containsExactly("boolean:boolean=true");
+    }
+
+    @Test
+    void otherValues() {
+        KeyValueFieldMapper.streamValue(sink, "string", "foo");
+        KeyValueFieldMapper.streamValue(sink, "float", 1.5F);
+        KeyValueFieldMapper.streamValue(sink, "decimal", new BigDecimal("1.50"));
+        KeyValueFieldMapper.streamValue(sink, "null", null);
+
+        assertThat(sink.fields)
+            .containsExactly("object:string=foo", "object:float=1.5", "object:decimal=1.50", "object:null=null");
+    }
+
+    @Test
+    void notSupportedByLogback12() {
+        // this library is built and tested with Logback 1.2 - key value pairs require Logback 1.3+
+        assertThat(KeyValueFieldMapper.isSupported()).isFalse();
+
+        final LoggerContext lc = new LoggerContext();
+        final LoggingEvent event = new LoggingEvent(KeyValueFieldMapperTest.class.getName(),
+            lc.getLogger("test"), Level.INFO, "message", null, null);
+
+        final KeyValueFieldMapper mapper = new KeyValueFieldMapper();
+        mapper.streamField(event, sink);
+        mapper.mapField(event, sink::accept);
+
+        assertThat(sink.fields).isEmpty();
+    }
+
+    private static final class RecordingSink implements GelfFieldSink {
+
+        private final List<String> fields = new ArrayList<>();
+
+        @Override
+        public void accept(final String fieldName, final Object value) {
+            fields.add("object:" + fieldName + "=" + value);
+        }
+
+        @Override
+        public void acceptLong(final String fieldName, final long value) {
+            fields.add("long:" + fieldName + "=" + value);
+        }
+
+        @Override
+        public void acceptDouble(final String fieldName, final double value) {
+            fields.add("double:" + fieldName + "=" + value);
+        }
+
+        @Override
+        public void acceptBoolean(final String fieldName, final boolean value) {
+            fields.add("boolean:" + fieldName + "=" + value);
+        }
+
+    }
+
+}
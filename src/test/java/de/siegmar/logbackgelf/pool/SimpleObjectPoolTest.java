@@ -170,9 +170,27 @@ class SimpleObjectPoolTest {
         }
     }
 
+    @Test
+    void noRecycleAfterClose() throws InterruptedException {
+        final SimpleObjectPool<MyPooledObject> pool =
+            new SimpleObjectPool<>(factory, 1, 100, -1, -1);
+
+        // an operation still running while the pool is closed
+        final MyPooledObject o1 = pool.borrowObject();
+        pool.close();
+        assertThat(o1.isClosed()).isTrue();
+
+        pool.invalidateObject(o1);
+
+        assertThatThrownBy(pool::borrowObject)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Pool has been closed");
+    }
+
     private static final class MyPooledObject extends BasePooledObject {
 
         private final int id;
+        private boolean closed;
 
         MyPooledObject(final int id) {
             this.id = id;
@@ -182,6 +200,15 @@ class SimpleObjectPoolTest {
             return id;
         }
 
+        boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        protected void close() {
+            closed = true;
+        }
+
     }
 
 }
@@ -0,0 +1,62 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2024 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package de.siegmar.logbackgelf;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link EscapeScanner} that checks multiple characters at once (8 to 32, depending on the CPU)
+ * using the (incubating) Vector API.
+ * <p>
+ * This class is compiled separately with {@code --add-modules jdk.incubator.vector} and only
+ * loaded (via {@link EscapeScanners}) if that module is present at runtime.
+ */
+final class VectorEscapeScanner implements EscapeScanner {
+
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    private static final short FIRST_NON_ASCII = 0x80;
+
+    @Override
+    public int runEnd(final char[] chars, final int from, final int to) {
+        int i = from;
+        for (final int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            final ShortVector v = ShortVector.fromCharArray(SPECIES, chars, i);
+            final VectorMask<Short> stop = v.compare(VectorOperators.UNSIGNED_LT, (short) ' ')
+                .or(v.compare(VectorOperators.UNSIGNED_GE, FIRST_NON_ASCII))
+                .or(v.eq((short) '"'))
+                .or(v.eq((short) '\\'))
+                .or(v.eq((short) '/'));
+            if (stop.anyTrue()) {
+                return i + stop.firstTrue();
+            }
+        }
+
+        for (; i < to; i++) {
+            final char ch = chars[i];
+            if (ch >= FIRST_NON_ASCII || SimpleJsonEncoder.requiresEscaping(ch)) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+}